@@ -0,0 +1,148 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cache.internal;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.xdev.pmd.external.org.springframework.util.ConcurrentReferenceHashMap;
+
+
+/**
+ * Fork/Override of upstream to fix some performance problems. See IMPROVED comments for details
+ * <p>
+ * Based on PMD 7.24.0
+ */
+public class RawFileFingerprinter implements ClasspathEntryFingerprinter
+{
+	private static final Logger LOG = LoggerFactory.getLogger(RawFileFingerprinter.class);
+	
+	private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("class");
+	
+	// IMPROVED
+	// CRC of each class file grouped by the classpath directory (root) that contains it;
+	// entries are removed when the file is changed (e.g. by the compiler).
+	// The grouping allows to invalidate only the affected roots when a directory is changed.
+	private static final Map<Path, Map<Path, CachedFileCrc>> CRC_CACHE_BY_ROOT = new ConcurrentHashMap<>();
+	
+	record CachedFileCrc(
+		long length,
+		long lastModified,
+		int crc)
+	{
+		boolean isValid(final long length, final long lastModified)
+		{
+			return this.length() == length
+				&& this.lastModified() == lastModified;
+		}
+	}
+	
+	/**
+	 * IMPROVED: Removes the cached CRC of the file
+	 */
+	public static void invalidate(final Path file)
+	{
+		CRC_CACHE_BY_ROOT.forEach((root, cache) -> {
+			if(file.startsWith(root))
+			{
+				cache.remove(file);
+			}
+		});
+	}
+	
+	/**
+	 * IMPROVED: Removes the cached CRCs of all files inside the directory
+	 * <p>
+	 * Only the roots are checked, directories outside of them (the majority) are ignored without looking at the
+	 * cached files.
+	 * </p>
+	 */
+	public static void invalidateDirectory(final Path directory)
+	{
+		CRC_CACHE_BY_ROOT.keySet().removeIf(root -> root.startsWith(directory));
+		CRC_CACHE_BY_ROOT.forEach((root, cache) -> {
+			if(directory.startsWith(root))
+			{
+				cache.keySet().removeIf(p -> p.startsWith(directory));
+			}
+		});
+	}
+	
+	@Override
+	public boolean appliesTo(final String fileExtension)
+	{
+		return SUPPORTED_EXTENSIONS.contains(fileExtension);
+	}
+	
+	@Override
+	public void fingerprint(final URL entry, final Checksum checksum) throws IOException
+	{
+		this.fingerprint(null, entry, checksum);
+	}
+	
+	/**
+	 * IMPROVED: Fingerprints a file inside a classpath directory
+	 *
+	 * @param root The classpath directory that contains the file; <code>null</code> = the parent of the file
+	 */
+	public void fingerprint(@Nullable final Path root, final URL entry, final Checksum checksum) throws IOException
+	{
+		try
+		{
+			final File file = new File(entry.toURI());
+			final Path path = file.toPath();
+			final long length = file.length();
+			final long lastModified = file.lastModified();
+			
+			// IMPROVEMENT: Only read files that were changed, the CRC of all others is cached
+			// Additionally the cache is updated by the compiler/file system events
+			// (which also detects changes that keep length and modification time)
+			final Map<Path, CachedFileCrc> cache = CRC_CACHE_BY_ROOT.computeIfAbsent(
+				root != null ? root : path.getParent(),
+				ignored -> new ConcurrentReferenceHashMap<>());
+			CachedFileCrc cached = cache.get(path);
+			if(cached == null || !cached.isValid(length, lastModified))
+			{
+				final CRC32 crc = new CRC32();
+				crc.update(Files.readAllBytes(path));
+				cached = new CachedFileCrc(length, lastModified, (int)crc.getValue());
+				cache.put(path, cached);
+			}
+			
+			// IMPROVEMENT: Update the checksum with the CRC of the file instead of the complete file
+			checksum.update(ByteBuffer.allocate(Integer.BYTES).putInt(cached.crc()).array(), 0, Integer.BYTES);
+		}
+		catch(final FileNotFoundException | NoSuchFileException ignored)
+		{
+			LOG.warn("Classpath entry {} doesn't exist, ignoring it", entry);
+		}
+		catch(final URISyntaxException | IllegalArgumentException e)
+		{
+			// Not a file (e.g. inside a jar) -> read it completely
+			try(final CheckedInputStream inputStream = new CheckedInputStream(entry.openStream(), checksum))
+			{
+				inputStream.transferTo(OutputStream.nullOutputStream());
+			}
+		}
+	}
+}
@@ -11,19 +11,20 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.file.NoSuchFileException;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Enumeration;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.Adler32;
 import java.util.zip.Checksum;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import software.xdev.pmd.analysis.classpath.ZipCentralDirectoryReader;
+import software.xdev.pmd.analysis.classpath.ZipFingerprintStore;
 import software.xdev.pmd.external.org.springframework.util.ConcurrentReferenceHashMap;
 
 
@@ -54,7 +55,8 @@ public class ZipFileFingerprinter implements ClasspathEntryFingerprinter
 		{
 			if(this.checksumUpdateEntries > 0)
 			{
-				checksum.update(this.checksumUpdateData, 0, this.checksumUpdateEntries);
+				// IMPROVED: The data contains 4 bytes (CRC) per entry - all of them are part of the checksum
+				checksum.update(this.checksumUpdateData, 0, this.checksumUpdateData.length);
 			}
 		}
 	}
@@ -63,9 +65,50 @@ public class ZipFileFingerprinter implements ClasspathEntryFingerprinter
 	private static final Logger LOG = LoggerFactory.getLogger(ZipFileFingerprinter.class);
 	
 	private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("jar", "zip");
-	private static final Set<String> SUPPORTED_ENTRY_EXTENSIONS = Set.of("class");
+	// IMPROVED
+	private static final int MAX_CONCURRENT_PREFETCHES = 16;
 	
-	private static final Comparator<ZipEntry> FILE_NAME_COMPARATOR = Comparator.comparing(ZipEntry::getName);
+	/**
+	 * IMPROVED: Fingerprints the entries concurrently (on virtual threads) so that the (sequential) fingerprinting
+	 * during the validity check of the analysis cache only hits the cache.
+	 * <p>
+	 * The checksum itself is still calculated in classpath order by PMD and is therefore deterministic.
+	 * </p>
+	 */
+	public static void prefetch(final Collection<URL> entries)
+	{
+		final ZipFileFingerprinter fingerprinter = new ZipFileFingerprinter();
+		// Limit concurrent I/O and open files
+		final Semaphore semaphore = new Semaphore(MAX_CONCURRENT_PREFETCHES);
+		try(final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+		{
+			for(final URL entry : entries)
+			{
+				final String path = entry.getPath();
+				if(!fingerprinter.appliesTo(path.substring(path.lastIndexOf('.') + 1)))
+				{
+					continue;
+				}
+				
+				executor.execute(() -> {
+					semaphore.acquireUninterruptibly();
+					try
+					{
+						fingerprinter.fingerprint(entry, new Adler32());
+					}
+					catch(final IOException | RuntimeException ex)
+					{
+						// Will be reported by the actual fingerprinting
+						LOG.debug("Failed to prefetch fingerprint of {}", entry, ex);
+					}
+					finally
+					{
+						semaphore.release();
+					}
+				});
+			}
+		}
+	}
 	
 	@Override
 	public boolean appliesTo(final String fileExtension)
@@ -92,39 +135,43 @@ public class ZipFileFingerprinter implements ClasspathEntryFingerprinter
 				return;
 			}
 			
-			try(final ZipFile zip = new ZipFile(file))
+			// IMPROVEMENT: USE PERSISTENT CACHE (e.g. after a restart or when GC cleared the cache above)
+			final ZipFingerprintStore.Fingerprint stored = ZipFingerprintStore.getInstance().get(cacheKey);
+			if(stored != null && stored.length() == length && stored.lastModified() == lastModified)
 			{
-				final List<ZipEntry> meaningfulEntries = this.getMeaningfulEntries(zip);
-				
-				/*
-				 *  Make sure the order of entries in the zip do not matter.
-				 *  Duplicates are technically possible, but shouldn't exist in classpath entries
-				 */
-				meaningfulEntries.sort(FILE_NAME_COMPARATOR);
-				
-				// IMPROVEMENT: DO NOT UPDATE CHECKSUM FOR EACH SINGLE FILE
-				// AGGREGATE FILES AND UPDATE IT ONE TIME ONLY
-				final ByteBuffer buffer = ByteBuffer.allocate(4 * meaningfulEntries.size());
-				int counter = 0;
-				for(final ZipEntry zipEntry : meaningfulEntries)
-				{
-					/*
-					 * The CRC actually uses 4 bytes, but as it's unsigned Java uses a long…
-					 * the cast changes the sign, but not the underlying byte values themselves
-					 */
-					buffer.putInt(4 * counter, (int)zipEntry.getCrc());
-					counter++;
-				}
-				
 				cache = new UrlCachedPayload(
 					length,
 					lastModified,
-					buffer.array(),
-					meaningfulEntries.size());
+					stored.checksumUpdateData(),
+					stored.checksumUpdateEntries());
 				FILE_CRC_CHECKSUMS_CACHE.put(cacheKey, cache);
 				
 				cache.updateCheckSum(checksum);
+				return;
 			}
+			
+			// IMPROVEMENT: ONLY READ THE CENTRAL DIRECTORY (see ZipCentralDirectoryReader)
+			// The CRCs are ordered so that the order of the entries in the zip does not matter
+			final int[] crcs = ZipCentralDirectoryReader.readClassCrcs(file);
+			
+			// IMPROVEMENT: DO NOT UPDATE CHECKSUM FOR EACH SINGLE FILE
+			// AGGREGATE FILES AND UPDATE IT ONE TIME ONLY
+			final ByteBuffer buffer = ByteBuffer.allocate(4 * crcs.length);
+			buffer.asIntBuffer().put(crcs);
+			
+			cache = new UrlCachedPayload(
+				length,
+				lastModified,
+				buffer.array(),
+				crcs.length);
+			FILE_CRC_CHECKSUMS_CACHE.put(cacheKey, cache);
+			ZipFingerprintStore.getInstance().put(cacheKey, new ZipFingerprintStore.Fingerprint(
+				length,
+				lastModified,
+				cache.checksumUpdateData(),
+				cache.checksumUpdateEntries()));
+			
+			cache.updateCheckSum(checksum);
 		}
 		catch(final FileNotFoundException | NoSuchFileException ignored)
 		{
@@ -136,41 +183,4 @@ public class ZipFileFingerprinter implements ClasspathEntryFingerprinter
 			LOG.warn("Malformed classpath entry doesn't refer to zip in filesystem.", e);
 		}
 	}
-	
-	private List<ZipEntry> getMeaningfulEntries(final ZipFile zip)
-	{
-		final List<ZipEntry> meaningfulEntries = new ArrayList<>();
-		final Enumeration<? extends ZipEntry> entries = zip.entries();
-		
-		while(entries.hasMoreElements())
-		{
-			final ZipEntry zipEntry = entries.nextElement();
-			
-			final String fileExtension = this.getFileExtension(zipEntry);
-			if(fileExtension != null && SUPPORTED_ENTRY_EXTENSIONS.contains(fileExtension))
-			{
-				meaningfulEntries.add(zipEntry);
-			}
-		}
-		
-		return meaningfulEntries;
-	}
-	
-	private String getFileExtension(final ZipEntry entry)
-	{
-		if(entry.isDirectory())
-		{
-			return null;
-		}
-		
-		final String file = entry.getName();
-		final int lastDot = file.lastIndexOf('.');
-		
-		if(lastDot == -1)
-		{
-			return "";
-		}
-		
-		return file.substring(lastDot + 1);
-	}
 }
@@ -11,6 +11,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
@@ -28,6 +29,8 @@ import net.sourceforge.pmd.lang.rule.impl.UnnecessaryPmdSuppressionRule;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
 import net.sourceforge.pmd.util.log.PmdReporter;
 
+import software.xdev.pmd.analysis.classpath.JavaTypeSystemReuse;
+
 
 /**
  * Fork/Override of upstream to fix some performance problems. See IMPROVED comments for details
@@ -37,6 +40,16 @@ import net.sourceforge.pmd.util.log.PmdReporter;
 @SuppressWarnings("all")
 public class RuleSets
 {
+	// IMPROVED
+	// Only the last used applicator is kept per thread
+	private static final ThreadLocal<CachedRuleApplicator> CACHED_RULE_APPLICATOR = new ThreadLocal<>();
+	
+	// IMPROVED
+	// The rule instances are shared by concurrent analyses (e.g. the batches of a bulk analysis) and the prewarm
+	// (see AnalysisPrewarmActivity). A rule is therefore never initialized by two of them at the same time; whoever
+	// comes later skips the rules that were already initialized.
+	private static final ReentrantLock RULE_INITIALIZATION_LOCK = new ReentrantLock();
+	
 	// IMPROVED
 	private final RuleSetsPerformanceImprover performanceImprover = new RuleSetsPerformanceImprover();
 	
@@ -45,14 +58,11 @@ public class RuleSets
 	
 	public RuleSets(final RuleSets ruleSets)
 	{
-		final List<RuleSet> rsets = new ArrayList<>();
-		for(final RuleSet rs : ruleSets.ruleSets)
-		{
-			// IMPROVED
-			// Copy RuleSet but keep already initalized rules so that they don't need to be initialized again!
-			rsets.add(rs.toBuilder().build());
-		}
-		this.ruleSets = Collections.unmodifiableList(rsets);
+		// IMPROVED
+		// The copies (one per worker thread) previously copied every RuleSet but kept the already initialized rules.
+		// As the rules are therefore shared anyway, the (unmodifiable) list of RuleSets is shared as well.
+		// The RuleApplicator - which holds the index of the currently analyzed file - is reused per thread.
+		this.ruleSets = ruleSets.ruleSets;
 	}
 	
 	public RuleSets(final Collection<? extends RuleSet> ruleSets)
@@ -95,36 +105,83 @@ public class RuleSets
 	
 	public void initializeRules(final LanguageProcessorRegistry lpReg, final PmdReporter reporter)
 	{
-		// this is abusing the mutability of RuleSet, will go away eventually.
-		for(final RuleSet rset : this.ruleSets)
+		// IMPROVED - Called once the processors are created and before any file is analyzed
+		JavaTypeSystemReuse.onLanguageProcessorsCreated(lpReg);
+		
+		// IMPROVED
+		RULE_INITIALIZATION_LOCK.lock();
+		try
 		{
-			for(final Iterator<Rule> iterator = rset.getRules().iterator(); iterator.hasNext(); )
+			// this is abusing the mutability of RuleSet, will go away eventually.
+			for(final RuleSet rset : this.ruleSets)
 			{
-				final Rule rule = iterator.next();
-				
-				try
+				for(final Iterator<Rule> iterator = rset.getRules().iterator(); iterator.hasNext(); )
 				{
-					// IMPROVED
-					final LanguageProcessor lp = lpReg.getProcessor(rule.getLanguage());
-					if(performanceImprover.shouldRuleInitializationBeSkipped(rule, lp))
+					final Rule rule = iterator.next();
+					
+					try
 					{
-						continue;
+						// IMPROVED
+						final LanguageProcessor lp = lpReg.getProcessor(rule.getLanguage());
+						if(performanceImprover.shouldRuleInitializationBeSkipped(rule, lp))
+						{
+							continue;
+						}
+						rule.initialize(lp);
+					}
+					catch(final Exception e)
+					{
+						reporter.errorEx(
+							"Exception while initializing rule " + rule.getName() + ", the rule will not be run", e);
+						iterator.remove();
 					}
-					rule.initialize(lp);
-				}
-				catch(final Exception e)
-				{
-					reporter.errorEx(
-						"Exception while initializing rule " + rule.getName() + ", the rule will not be run", e);
-					iterator.remove();
 				}
 			}
 		}
+		finally
+		{
+			RULE_INITIALIZATION_LOCK.unlock();
+		}
 	}
 	
 	private RuleApplicator prepareApplicator()
 	{
-		return RuleApplicator.build(this.ruleSets.stream().flatMap(it -> it.getRules().stream())::iterator);
+		// IMPROVED
+		// The applicator only depends on the rules. As the rule instances are shared between the copies (and also
+		// between analyses), the applicator is reused by all copies on the same thread as long as the rules are the
+		// same. It can't be shared between threads as it holds the index of the currently analyzed file.
+		final List<Rule> rules = this.ruleSets.stream().flatMap(it -> it.getRules().stream()).toList();
+		final CachedRuleApplicator cached = CACHED_RULE_APPLICATOR.get();
+		if(cached != null && cached.isFor(rules))
+		{
+			return cached.ruleApplicator();
+		}
+		
+		final RuleApplicator applicator = RuleApplicator.build(rules);
+		CACHED_RULE_APPLICATOR.set(new CachedRuleApplicator(rules, applicator));
+		return applicator;
+	}
+	
+	// IMPROVED
+	record CachedRuleApplicator(
+		List<Rule> rules,
+		RuleApplicator ruleApplicator)
+	{
+		boolean isFor(final List<Rule> otherRules)
+		{
+			if(this.rules.size() != otherRules.size())
+			{
+				return false;
+			}
+			for(int i = 0; i < this.rules.size(); i++)
+			{
+				if(this.rules.get(i) != otherRules.get(i))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
 	}
 	
 	public RuleSet[] getAllRuleSets()
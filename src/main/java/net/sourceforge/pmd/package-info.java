@@ -8,6 +8,9 @@
  *         <ul>
  *             <li>RuleSets: Do not initialize Rules that have already been initialized</li>
  *             <li>RuleSets: Do not deep copy rules - which causes them to lose their initialization data</li>
+ *             <li>RuleSets: Share the RuleSets of the copies that are created for each worker thread</li>
+ *             <li>RuleSets: Reuse the RuleApplicator per thread as long as the rules are unchanged</li>
+ *             <li>RuleSets: Never initialize the shared rules concurrently</li>
  *             <li>SaxonXPathRuleQuery: Reuse cached configuration</li>
  *        </ul>
  *     </li>
@@ -15,6 +18,11 @@
  *         Other
  *         <ul>
  *             <li>ZIPFileFingerprinter: Only fingerprint files when they were changed otherwise use cache</li>
+ *             <li>ZIPFileFingerprinter: Persist the cache across restarts</li>
+ *             <li>ZIPFileFingerprinter: Fingerprint jars concurrently in advance</li>
+ *             <li>ZIPFileFingerprinter: Only read the central directory of jars</li>
+ *             <li>RawFileFingerprinter: Only read class files that were changed otherwise use cache</li>
+ *             <li>RuleSets: Reuse the Java type system of previous analyses that used the same classloader</li>
  *         </ul>
  *     </li>
  * </ul>
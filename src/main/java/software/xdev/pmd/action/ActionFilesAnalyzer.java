@@ -3,9 +3,12 @@ package software.xdev.pmd.action;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jetbrains.annotations.NotNull;
@@ -15,7 +18,6 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.module.Module;
-import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
@@ -26,19 +28,20 @@ import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileVisitor;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
 
 import software.xdev.pmd.analysis.NoAnalysisReason;
 import software.xdev.pmd.analysis.PMDAnalysisResult;
 import software.xdev.pmd.analysis.PMDAnalyzer;
-import software.xdev.pmd.analysis.PsiFileValidator;
+import software.xdev.pmd.analysis.VirtualFileValidator;
+import software.xdev.pmd.analysis.scheduling.BulkAnalysisExecutor;
 import software.xdev.pmd.config.ConfigurationLocationSource;
 import software.xdev.pmd.config.PluginConfiguration;
 import software.xdev.pmd.config.PluginConfigurationManager;
 import software.xdev.pmd.currentfile.CombinedPMDAnalysisResult;
 import software.xdev.pmd.model.scope.ScanScope;
 import software.xdev.pmd.ui.toolwindow.analysis.report.ReportViewManager;
+import software.xdev.pmd.ui.toolwindow.analysis.report.StreamingReportSink;
 
 
 public class ActionFilesAnalyzer
@@ -80,20 +83,20 @@ public class ActionFilesAnalyzer
 		progressIndicator.setText("Collecting files...");
 		progressIndicator.setIndeterminate(true);
 		
-		final PsiManager psiManager = PsiManager.getInstance(project);
 		final PluginConfiguration pluginConfiguration =
 			project.getService(PluginConfigurationManager.class).getCurrent();
 		final ProjectFileIndex projectFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
 		
-		final Map<Optional<com.intellij.openapi.module.Module>, Set<PsiFile>> psiFiles =
+		// Only VirtualFiles are collected as creating PSI for a lot of files is expensive
+		final Map<Optional<Module>, Set<VirtualFile>> moduleFiles =
 			ReadAction.computeBlocking(() -> this.collectFiles(
+				project,
 				projectFileIndex,
-				psiManager,
 				pluginConfiguration,
 				progressIndicator,
 				selectedFiles));
 		
-		if(psiFiles.isEmpty())
+		if(moduleFiles.isEmpty())
 		{
 			project.getService(ReportViewManager.class).displayNewReport(
 				CombinedPMDAnalysisResult.combine(PMDAnalysisResult.empty(NoAnalysisReason.NO_APPLICABLE_FILES)),
@@ -104,30 +107,70 @@ public class ActionFilesAnalyzer
 		progressIndicator.setText("Launching analyses");
 		progressIndicator.setText2("");
 		
-		final CombinedPMDAnalysisResult combined = CombinedPMDAnalysisResult.combine(psiFiles.entrySet()
-			.parallelStream()
-			.map(e ->
-				project.getService(PMDAnalyzer.class).analyze(
-					e.getKey(),
-					e.getValue(),
-					false,
-					project.getService(ConfigurationLocationSource.class)
-						.getConfigurationLocations(e.getKey().orElse(null)),
-					progressIndicator))
-			.toList());
+		// All modules share the budget of this run
+		final BulkAnalysisExecutor.RunBudget runBudget = project.getService(BulkAnalysisExecutor.class)
+			.planFor(moduleFiles.values()
+				.stream()
+				.mapToInt(Set::size)
+				.sum());
 		
-		project.getService(ReportViewManager.class).displayNewReport(combined, triggeringEvent);
+		// Results are displayed as soon as they are available
+		final StreamingReportSink reportSink =
+			project.getService(ReportViewManager.class).displayNewStreamingReport(triggeringEvent);
+		try
+		{
+			// Modules are prepared concurrently; the analysis itself is limited by the BulkAnalysisExecutor
+			final List<CompletableFuture<PMDAnalysisResult>> moduleAnalyses = moduleFiles.entrySet()
+				.stream()
+				.map(e -> CompletableFuture.supplyAsync(
+					() -> project.getService(PMDAnalyzer.class).analyzeBulk(
+						e.getKey(),
+						e.getValue(),
+						project.getService(ConfigurationLocationSource.class)
+							.getConfigurationLocations(e.getKey().orElse(null)),
+						progressIndicator,
+						runBudget,
+						reportSink),
+					AppExecutorUtil.getAppExecutorService()))
+				.toList();
+			reportSink.finish(moduleAnalyses.stream()
+				.map(ActionFilesAnalyzer::join)
+				.toList());
+		}
+		catch(final RuntimeException ex)
+		{
+			// Display what was analyzed so far
+			reportSink.finish(List.of());
+			throw ex;
+		}
+	}
+	
+	private static PMDAnalysisResult join(final CompletableFuture<PMDAnalysisResult> future)
+	{
+		try
+		{
+			return future.join();
+		}
+		catch(final CompletionException ex)
+		{
+			// Keep e.g. ProcessCanceledException intact
+			if(ex.getCause() instanceof final RuntimeException rex)
+			{
+				throw rex;
+			}
+			throw ex;
+		}
 	}
 	
 	@NotNull
-	private Map<Optional<com.intellij.openapi.module.Module>, Set<PsiFile>> collectFiles(
+	private Map<Optional<Module>, Set<VirtualFile>> collectFiles(
+		final Project project,
 		final ProjectFileIndex projectFileIndex,
-		final PsiManager psiManager,
 		final PluginConfiguration pluginConfiguration,
 		final ProgressIndicator progressIndicator,
 		final VirtualFile[] selectedFiles)
 	{
-		final Map<Optional<com.intellij.openapi.module.Module>, Set<PsiFile>> psiFiles = new HashMap<>();
+		final Map<Optional<Module>, Set<VirtualFile>> moduleFiles = new HashMap<>();
 		final AtomicInteger counterScanned = new AtomicInteger();
 		final VirtualFileVisitor<Object> fileVisitor = new VirtualFileVisitor<>()
 		{
@@ -151,26 +194,20 @@ public class ActionFilesAnalyzer
 						&& !projectFileIndex.isInLibrary(file);
 				}
 				
-				final PsiFile psiFile = psiManager.findFile(file);
-				
-				final Optional<Module> optModule =
-					Optional.ofNullable(ModuleUtilCore.findModuleForFile(psiFile));
+				final Optional<Module> optModule = Optional.ofNullable(projectFileIndex.getModuleForFile(file));
 				
-				if(!PsiFileValidator.isScannable(psiFile, optModule, pluginConfiguration))
+				if(!VirtualFileValidator.isScannable(file, optModule, project, pluginConfiguration))
 				{
 					return false;
 				}
 				
-				final Set<PsiFile> modulePsiFiles = psiFiles.computeIfAbsent(
-					optModule,
-					ignored -> new HashSet<>());
-				modulePsiFiles.add(psiFile);
+				moduleFiles.computeIfAbsent(optModule, ignored -> new HashSet<>()).add(file);
 				return true;
 			}
 		};
 		
 		Arrays.stream(selectedFiles).forEach(file ->
 			VfsUtilCore.visitChildrenRecursively(file, fileVisitor));
-		return psiFiles;
+		return moduleFiles;
 	}
 }
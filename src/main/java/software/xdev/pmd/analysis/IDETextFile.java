@@ -3,12 +3,23 @@ package software.xdev.pmd.analysis;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jetbrains.annotations.Nullable;
 
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 
 import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.document.FileId;
@@ -16,18 +27,48 @@ import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.document.TextFileContent;
 
 
+/**
+ * A file that is analyzed by PMD.
+ * <p>
+ * The file is either backed by a {@link PsiFile} (e.g. when analyzing the file of an editor) or only by a
+ * {@link VirtualFile} (bulk analysis). In the latter case the PSI is only created when it's required for displaying a
+ * result.
+ * </p>
+ */
 class IDETextFile implements TextFile
 {
 	private static final Logger LOG = Logger.getInstance(IDETextFile.class);
+	// Larger files are read without storing them in the VFS content cache
+	private static final long UNCACHED_THRESHOLD_BYTES = 1024 * 1024;
+	
 	private final LanguageVersion languageVersion;
-	private final PsiFile psiFile;
+	private final Project project;
+	@Nullable
+	private final VirtualFile virtualFile;
+	
+	// Accessed by the analysis threads and the thread that processes the results
+	private final AtomicReference<PsiFile> psiFile = new AtomicReference<>();
+	private final AtomicReference<FileId> fileId = new AtomicReference<>();
+	// Immutable snapshot of the contents; captured before the analysis to not require a read action during it
+	private CharSequence contents;
 	
-	private FileId fileId;
+	/**
+	 * @param contents Snapshot of the contents; <code>null</code> = captured before the analysis
+	 */
+	IDETextFile(final LanguageVersion languageVersion, final PsiFile psiFile, @Nullable final CharSequence contents)
+	{
+		this.languageVersion = languageVersion;
+		this.project = psiFile.getProject();
+		this.virtualFile = psiFile.getVirtualFile();
+		this.psiFile.set(psiFile);
+		this.contents = contents;
+	}
 	
-	IDETextFile(final LanguageVersion languageVersion, final PsiFile psiFile)
+	IDETextFile(final LanguageVersion languageVersion, final VirtualFile virtualFile, final Project project)
 	{
 		this.languageVersion = languageVersion;
-		this.psiFile = psiFile;
+		this.project = project;
+		this.virtualFile = virtualFile;
 	}
 	
 	@Override
@@ -40,12 +81,12 @@ class IDETextFile implements TextFile
 	public FileId getFileId()
 	{
 		this.initFileIdIfRequired();
-		return this.fileId;
+		return this.fileId.get();
 	}
 	
 	FileId getFileIdIfPresent()
 	{
-		return this.fileId;
+		return this.fileId.get();
 	}
 	
 	boolean hasFileId()
@@ -55,7 +96,7 @@ class IDETextFile implements TextFile
 	
 	private void initFileIdIfRequired()
 	{
-		if(this.fileId == null)
+		if(this.fileId.get() == null)
 		{
 			this.initFileId();
 		}
@@ -63,9 +104,9 @@ class IDETextFile implements TextFile
 	
 	private synchronized void initFileId()
 	{
-		if(this.fileId == null)
+		if(this.fileId.get() == null)
 		{
-			this.fileId = this.calculateFileId();
+			this.fileId.set(this.calculateFileId());
 		}
 	}
 	
@@ -74,19 +115,19 @@ class IDETextFile implements TextFile
 	{
 		try
 		{
-			return FileId.fromPath(this.psiFile.getVirtualFile().toNioPath());
+			return FileId.fromPath(this.virtualFile.toNioPath());
 		}
 		catch(final Exception ex)
 		{
 			// Sometimes files are not physically present on the disk and are just available in memory
-			LOG.debug("Failed to get NioPath for file " + this.psiFile + ". Falling back to URI", ex);
+			LOG.debug("Failed to get NioPath for file " + this.getName() + ". Falling back to URI", ex);
 			try
 			{
-				return FileId.fromURI(this.psiFile.getVirtualFile().getUrl());
+				return FileId.fromURI(this.virtualFile.getUrl());
 			}
 			catch(final Exception ex2)
 			{
-				LOG.info("Failed to get URI for file " + this.psiFile + ". Falling back to temp file", ex2);
+				LOG.info("Failed to get URI for file " + this.getName() + ". Falling back to temp file", ex2);
 				// FiledId.INVALID is not working as it results in crashes when trying to parse the file-path
 				// -> Create a temporary file and use that instead
 				try
@@ -101,26 +142,108 @@ class IDETextFile implements TextFile
 		}
 	}
 	
+	/**
+	 * Captures a snapshot of the current contents.
+	 * <p>
+	 * Requires read access. The snapshot of an open document is shared with the document and therefore doesn't
+	 * require a copy. An already present snapshot (e.g. from the editor) is kept.
+	 * </p>
+	 */
+	void captureContents()
+	{
+		if(this.contents != null)
+		{
+			return;
+		}
+		try
+		{
+			this.contents = this.loadContents();
+		}
+		catch(final IOException ex)
+		{
+			// Will be retried (and reported) when PMD reads the file
+			LOG.debug("Failed to capture contents of " + this.getName(), ex);
+		}
+	}
+	
+	private CharSequence loadContents() throws IOException
+	{
+		final PsiFile currentPsiFile = this.psiFile.get();
+		if(currentPsiFile != null)
+		{
+			final Document document = PsiDocumentManager.getInstance(this.project).getCachedDocument(currentPsiFile);
+			return document != null
+				? document.getImmutableCharSequence()
+				: currentPsiFile.getViewProvider().getContents();
+		}
+		
+		final Document document = FileDocumentManager.getInstance().getCachedDocument(this.virtualFile);
+		if(document != null)
+		{
+			return document.getImmutableCharSequence();
+		}
+		if(this.virtualFile.getLength() > UNCACHED_THRESHOLD_BYTES)
+		{
+			// Handles the BOM and charset like the VFS does
+			return LoadTextUtil.getTextByBinaryPresentation(
+				this.virtualFile.contentsToByteArray(false),
+				this.virtualFile);
+		}
+		return LoadTextUtil.loadText(this.virtualFile);
+	}
+	
 	@Override
-	public TextFileContent readContents()
+	public TextFileContent readContents() throws IOException
 	{
+		final CharSequence snapshot = this.contents;
+		if(snapshot != null)
+		{
+			return TextFileContent.fromCharSeq(snapshot);
+		}
+		
 		final Application application = ApplicationManager.getApplication();
-		final Computable<TextFileContent> action = () -> TextFileContent.fromCharSeq(this.psiFile.getText());
+		final ThrowableComputable<TextFileContent, IOException> action =
+			() -> TextFileContent.fromCharSeq(this.loadContents());
 		if(application.isReadAccessAllowed())
 		{
 			return action.compute();
 		}
-		return application.runReadAction(action);
+		return ReadAction.compute(action);
 	}
 	
 	@Override
 	public void close()
 	{
-		// Nothing
+		// The contents are no longer needed once PMD is done with the file
+		this.contents = null;
+	}
+	
+	String getName()
+	{
+		return this.virtualFile != null
+			? this.virtualFile.getName()
+			: this.psiFile.get().getName();
 	}
 	
+	/**
+	 * @return the PSI of the file; created if required. <code>null</code> if the file no longer exists.
+	 */
+	@Nullable
 	PsiFile getPsiFile()
 	{
-		return this.psiFile;
+		if(this.psiFile.get() == null)
+		{
+			this.initPsiFile();
+		}
+		return this.psiFile.get();
+	}
+	
+	private synchronized void initPsiFile()
+	{
+		if(this.psiFile.get() == null && this.virtualFile != null && this.virtualFile.isValid())
+		{
+			this.psiFile.set(
+				ReadAction.compute(() -> PsiManager.getInstance(this.project).findFile(this.virtualFile)));
+		}
 	}
 }
@@ -14,16 +14,29 @@ import net.sourceforge.pmd.reporting.Report;
 public record PMDAnalysisResult(
 	@Nullable Report report,
 	Map<FileId, PsiFile> fileIdPsiFiles,
+	int analyzedFileCount,
 	@Nullable NoAnalysisReason noAnalysisReason
 )
 {
 	public PMDAnalysisResult(@Nullable final Report report, final Map<FileId, PsiFile> fileIdPsiFiles)
 	{
-		this(report, fileIdPsiFiles, null);
+		this(report, fileIdPsiFiles, fileIdPsiFiles.size(), null);
+	}
+	
+	/**
+	 * @param analyzedFileCount Number of analyzed files; might be higher than the number of
+	 *                          <code>fileIdPsiFiles</code> as these are only required for files with results
+	 */
+	public PMDAnalysisResult(
+		@Nullable final Report report,
+		final Map<FileId, PsiFile> fileIdPsiFiles,
+		final int analyzedFileCount)
+	{
+		this(report, fileIdPsiFiles, analyzedFileCount, null);
 	}
 	
 	public static PMDAnalysisResult empty(final NoAnalysisReason noAnalysisReason)
 	{
-		return new PMDAnalysisResult(null, new HashMap<>(), noAnalysisReason);
+		return new PMDAnalysisResult(null, new HashMap<>(), 0, noAnalysisReason);
 	}
 }
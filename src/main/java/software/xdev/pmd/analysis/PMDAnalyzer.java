@@ -1,56 +1,60 @@
 package software.xdev.pmd.analysis;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.function.UnaryOperator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
-import com.intellij.util.PathsList;
+import com.intellij.psi.PsiManager;
 
 import net.sourceforge.pmd.PMDConfiguration;
 import net.sourceforge.pmd.PmdAnalysis;
-import net.sourceforge.pmd.internal.util.ClasspathClassLoader;
 import net.sourceforge.pmd.lang.Language;
 import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.lang.document.TextFile;
 import net.sourceforge.pmd.lang.rule.RuleSet;
 import net.sourceforge.pmd.reporting.FileAnalysisListener;
 import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
 import net.sourceforge.pmd.reporting.Report;
+import software.xdev.pmd.analysis.cache.AnalysisCacheManager;
+import software.xdev.pmd.analysis.cache.WriteBehindAnalysisCache;
+import software.xdev.pmd.analysis.classpath.AnalysisClassLoaderService;
+import software.xdev.pmd.analysis.classpath.AnalysisClassLoaderService.ClassLoaderLease;
+import software.xdev.pmd.analysis.scheduling.BulkAnalysisExecutor;
 import software.xdev.pmd.config.PluginConfiguration;
 import software.xdev.pmd.config.PluginConfigurationManager;
-import software.xdev.pmd.external.org.springframework.util.ConcurrentReferenceHashMap;
-import software.xdev.pmd.langversion.ManagedLanguageVersionResolver;
+import software.xdev.pmd.langversion.ModuleLanguageVersionCache;
 import software.xdev.pmd.model.config.ConfigurationLocation;
+import software.xdev.pmd.model.config.DuplicateRuleOrigins;
+import software.xdev.pmd.model.config.RuleSetDiff;
 
 
-public class PMDAnalyzer implements Disposable
+public class PMDAnalyzer
 {
 	private static final Logger LOG = Logger.getInstance(PMDAnalyzer.class);
 	
@@ -58,40 +62,26 @@ public class PMDAnalyzer implements Disposable
 		.name("RuleSetLoader", 0)
 		.factory());
 	
-	private final Project project;
+	private static final long CACHE_ACQUIRE_TIMEOUT_MS = 100;
+	// Number of files whose contents are captured inside a single read action
+	// Small enough so that write actions (e.g. typing) are not blocked for a long time
+	private static final int CONTENTS_SNAPSHOT_BATCH_SIZE = 100;
 	
-	private final Map<Optional<Module>, ReentrantLock> locks = new ConcurrentHashMap<>();
-	private final Map<Optional<Module>, CacheFile> cacheFiles = new ConcurrentHashMap<>();
-	// Reuse classloader when path is the same
-	private final Map<Set<String>, ClassLoader> cachedSdkLibAuxClassLoader =
-		new ConcurrentReferenceHashMap<>();
+	private final Project project;
 	
 	public PMDAnalyzer(final Project project)
 	{
 		this.project = project;
 	}
 	
-	private String cacheFile(final Optional<Module> optModule)
-	{
-		return this.cacheFiles.computeIfAbsent(
-				optModule,
-				ignored -> {
-					try
-					{
-						final Path path = Files.createTempFile("pmd-intellij-cache", ".cache");
-						return new CacheFile(path, path.toAbsolutePath().toString());
-					}
-					catch(final IOException e)
-					{
-						throw new UncheckedIOException(e);
-					}
-				})
-			.absolutePath();
-	}
-	
+	/**
+	 * @param contentsSnapshots Already captured contents of files; the contents of all other files are captured
+	 *                          before the analysis
+	 */
 	public PMDAnalysisResult analyze(
 		final Optional<Module> optModule,
 		final Set<PsiFile> filesToScan,
+		final Map<PsiFile, CharSequence> contentsSnapshots,
 		final boolean determineIfFilesApplicable,
 		final Collection<ConfigurationLocation> configurationLocations,
 		final ProgressIndicator progressIndicator)
@@ -105,41 +95,7 @@ public class PMDAnalyzer implements Disposable
 			return PMDAnalysisResult.empty(NoAnalysisReason.NO_CONFIG_LOCATION_OR_EXCLUDED);
 		}
 		
-		final ReentrantLock lock = this.locks.computeIfAbsent(optModule, ignored -> new ReentrantLock());
-		lock.lock();
-		
-		try
-		{
-			return this.analyzeInternal(
-				optModule,
-				filesToScan,
-				determineIfFilesApplicable,
-				configurationLocations,
-				progressIndicator);
-		}
-		finally
-		{
-			lock.unlock();
-		}
-	}
-	
-	private PMDAnalysisResult analyzeInternal(
-		final Optional<Module> optModule,
-		final Set<PsiFile> filesToScan,
-		final boolean determineIfFilesApplicable,
-		final Collection<ConfigurationLocation> configurationLocations,
-		final ProgressIndicator progressIndicator)
-	{
-		final long startMs = System.currentTimeMillis();
-		
-		// Load ruleset - if required - async in background
-		final CompletableFuture<List<RuleSet>> cfLoadRuleSetsAsync =
-			CompletableFuture.supplyAsync(
-				() -> configurationLocations.stream()
-					.map(ConfigurationLocation::getOrRefreshCachedRuleSet)
-					.filter(Objects::nonNull)
-					.toList(),
-				RULESET_LOADER_SERVICE);
+		final CompletableFuture<List<RuleSet>> cfLoadRuleSetsAsync = this.loadRuleSetsAsync(configurationLocations);
 		
 		final PluginConfiguration pluginConfiguration =
 			this.project.getService(PluginConfigurationManager.class).getCurrent();
@@ -160,72 +116,282 @@ public class PMDAnalyzer implements Disposable
 		final Map<LanguageVersion, Set<PsiFile>> highestLanguageVersionAndFiles =
 			this.getHighestLanguageVersionAndFiles(this.groupPsiFilesBySupportedLanguageAndVersion(applicableFiles));
 		
+		// No lock is required here
+		// Only the analysis cache can't be used concurrently which is handled below
+		return this.analyzeInternal(
+			optModule,
+			highestLanguageVersionAndFiles.keySet(),
+			toIdeFiles(
+				highestLanguageVersionAndFiles,
+				(v, f) -> new IDETextFile(v, f, contentsSnapshots.get(f))),
+			cfLoadRuleSetsAsync,
+			pluginConfiguration,
+			progressIndicator,
+			null);
+	}
+	
+	/**
+	 * Analyzes a lot of files (e.g. a whole module) without creating PSI for them. PSI is only created for files
+	 * that have results.
+	 * <p>
+	 * The result of each file is passed to the consumer as soon as the file was analyzed. The returned result then
+	 * only contains why no analysis was executed (if this is the case).
+	 * </p>
+	 *
+	 * @param filesToScan Files that were already checked with {@link VirtualFileValidator}
+	 * @param runBudget   The thread budget of the whole run (see {@link BulkAnalysisExecutor#planFor(int)})
+	 */
+	public PMDAnalysisResult analyzeBulk(
+		final Optional<Module> optModule,
+		final Set<VirtualFile> filesToScan,
+		final Collection<ConfigurationLocation> configurationLocations,
+		final ProgressIndicator progressIndicator,
+		final BulkAnalysisExecutor.RunBudget runBudget,
+		final Consumer<PMDAnalysisResult> streamingResultConsumer)
+	{
+		if(filesToScan.isEmpty())
+		{
+			return PMDAnalysisResult.empty(NoAnalysisReason.NO_FILES);
+		}
+		if(configurationLocations.isEmpty())
+		{
+			return PMDAnalysisResult.empty(NoAnalysisReason.NO_CONFIG_LOCATION_OR_EXCLUDED);
+		}
+		
+		final CompletableFuture<List<RuleSet>> cfLoadRuleSetsAsync = this.loadRuleSetsAsync(configurationLocations);
+		
+		final PluginConfiguration pluginConfiguration =
+			this.project.getService(PluginConfigurationManager.class).getCurrent();
+		
+		progressIndicator.checkCanceled();
+		progressIndicator.setText("Calculating languages and version");
+		progressIndicator.setIndeterminate(true);
+		
+		final Map<LanguageVersion, Set<VirtualFile>> highestLanguageVersionAndFiles =
+			this.getHighestLanguageVersionAndFiles(this.groupVirtualFilesBySupportedLanguageAndVersion(filesToScan));
+		if(highestLanguageVersionAndFiles.isEmpty())
+		{
+			cfLoadRuleSetsAsync.cancel(false);
+			return PMDAnalysisResult.empty(NoAnalysisReason.NO_APPLICABLE_FILES);
+		}
+		
+		return this.analyzeInternal(
+			optModule,
+			highestLanguageVersionAndFiles.keySet(),
+			toIdeFiles(highestLanguageVersionAndFiles, (v, f) -> new IDETextFile(v, f, this.project)),
+			cfLoadRuleSetsAsync,
+			pluginConfiguration,
+			progressIndicator,
+			new BulkRun(runBudget, streamingResultConsumer));
+	}
+	
+	private CompletableFuture<List<RuleSet>> loadRuleSetsAsync(
+		final Collection<ConfigurationLocation> configurationLocations)
+	{
+		// Load rulesets - if required - async in background
+		// Every location is loaded in its own (virtual) thread so that a slow location doesn't delay the others
+		final List<CompletableFuture<RuleSet>> cfRuleSets = configurationLocations.stream()
+			.map(location -> CompletableFuture.supplyAsync(
+				location::getOrRefreshCachedRuleSet,
+				RULESET_LOADER_SERVICE))
+			.toList();
+		
+		return CompletableFuture.allOf(cfRuleSets.toArray(CompletableFuture[]::new))
+			// Keep the order of the locations
+			.thenApply(ignored -> cfRuleSets.stream()
+				.map(CompletableFuture::join)
+				.filter(Objects::nonNull)
+				.toList())
+			// Rules that are active in multiple locations should only be evaluated (and reported) once
+			.thenApply(RuleSetDiff::withoutDuplicateRules)
+			.thenApply(deduplicated -> {
+				this.project.getService(DuplicateRuleOrigins.class).update(deduplicated);
+				return deduplicated.ruleSets();
+			});
+	}
+	
+	private static <F> List<IDETextFile> toIdeFiles(
+		final Map<LanguageVersion, Set<F>> languageVersionAndFiles,
+		final BiFunction<LanguageVersion, F, IDETextFile> createIdeFile)
+	{
+		return languageVersionAndFiles.entrySet()
+			.stream()
+			.flatMap(e -> e.getValue().stream().map(f -> createIdeFile.apply(e.getKey(), f)))
+			.toList();
+	}
+	
+	/**
+	 * @param bulkRun If present the files are analyzed in batches by the {@link BulkAnalysisExecutor} and the result
+	 *                of each file is passed to the consumer as soon as the file was analyzed.
+	 */
+	private PMDAnalysisResult analyzeInternal(
+		final Optional<Module> optModule,
+		final Collection<LanguageVersion> languageVersions,
+		final List<IDETextFile> ideFiles,
+		final CompletableFuture<List<RuleSet>> cfLoadRuleSetsAsync,
+		final PluginConfiguration pluginConfiguration,
+		final ProgressIndicator progressIndicator,
+		@Nullable final BulkRun bulkRun)
+	{
+		final long startMs = System.currentTimeMillis();
+		
 		progressIndicator.checkCanceled();
 		progressIndicator.setText("Preparing configuration");
 		
 		final PMDConfiguration pmdConfig = new PMDConfiguration();
-		pmdConfig.setDefaultLanguageVersions(highestLanguageVersionAndFiles.keySet().stream().toList());
+		pmdConfig.setDefaultLanguageVersions(List.copyOf(languageVersions));
 		
 		final List<Module> modules = optModule
 			.map(List::of)
 			.orElseGet(() -> List.of(ModuleManager.getInstance(this.project).getModules()));
 		
-		pmdConfig.setClassLoader(this.classLoaderFor(modules));
+		// The classloader is closed once it's no longer cached and no analysis uses it anymore
+		final ClassLoaderLease classLoaderLease =
+			this.project.getService(AnalysisClassLoaderService.class).classLoaderFor(modules);
+		pmdConfig.setClassLoader(classLoaderLease.classLoader());
 		
 		if(pluginConfiguration.showSuppressedWarnings())
 		{
 			pmdConfig.setShowSuppressedViolations(true);
 		}
-		if(pluginConfiguration.useSingleThread())
+		
+		// PMD itself never starts additional threads:
+		// A single file (e.g. from the editor) is analyzed inline on the calling thread
+		// and the batches of bulk analyses share the thread budget of the BulkAnalysisExecutor
+		pmdConfig.setThreads(0);
+		
+		// Long-living cache that is written in the background
+		// -> a single file analysis doesn't rewrite the whole cache file
+		final WriteBehindAnalysisCache analysisCache = pluginConfiguration.useCacheFile()
+			? this.project.getService(AnalysisCacheManager.class).cacheFor(optModule)
+			: null;
+		// The cache can only be used by one analysis at a time
+		// If it's in use (e.g. by a long running bulk analysis) analyze without it instead of waiting
+		final boolean useAnalysisCache = analysisCache != null && analysisCache.tryAcquire(CACHE_ACQUIRE_TIMEOUT_MS);
+		if(useAnalysisCache)
 		{
-			pmdConfig.setThreads(-1);
+			pmdConfig.setAnalysisCache(analysisCache);
 		}
-		if(pluginConfiguration.useCacheFile())
+		else if(analysisCache != null)
 		{
-			pmdConfig.setAnalysisCacheLocation(this.cacheFile(optModule));
+			LOG.debug("Analysis cache is in use, analyzing without it");
 		}
 		
-		progressIndicator.setText("Preparing files for scan");
-		
-		final List<IDETextFile> ideFiles = highestLanguageVersionAndFiles.entrySet()
-			.stream()
-			.flatMap(e -> e.getValue().stream().map(f -> new IDETextFile(e.getKey(), f)))
-			.toList();
-		
-		final Report report;
-		try(final PmdAnalysis pmd = PmdAnalysis.create(pmdConfig))
+		final PMDAnalysisResult result;
+		try
 		{
 			// Prevent ruleset parsing
-			pmd.addRuleSets(cfLoadRuleSetsAsync.join());
-			
-			ideFiles.forEach(pmd.files()::addFile);
+			final List<RuleSet> ruleSets = cfLoadRuleSetsAsync.join();
+			final ProgressReportingAnalysisListener progressListener =
+				new ProgressReportingAnalysisListener(progressIndicator, ideFiles.size());
 			
 			progressIndicator.checkCanceled();
 			progressIndicator.setText("Analysing");
 			progressIndicator.setFraction(0);
 			
-			pmd.addListener(new ProgressReportingAnalysisListener(progressIndicator, ideFiles.size()));
-			
-			report = pmd.performAnalysisAndCollectReport();
+			if(bulkRun != null)
+			{
+				// Analyze in batches so that only the data of the currently analyzed batches is in memory
+				final int batchSize = Math.max(1, pluginConfiguration.bulkAnalysisBatchSize());
+				final List<Runnable> batches = new ArrayList<>();
+				for(int from = 0; from < ideFiles.size(); from += batchSize)
+				{
+					final List<IDETextFile> batch = ideFiles.subList(from, Math.min(ideFiles.size(), from + batchSize));
+					// Configuration errors are identical for all batches
+					final boolean emitConfigErrors = from == 0;
+					batches.add(() -> this.runAnalysis(
+						classLoaderLease,
+						pmdConfig,
+						ruleSets,
+						batch,
+						progressListener,
+						new StreamingAnalysisListener(bulkRun.streamingResultConsumer(), emitConfigErrors)));
+				}
+				this.project.getService(BulkAnalysisExecutor.class)
+					.executeAll(batches, ideFiles.size(), bulkRun.runBudget(), progressIndicator);
+				// Results were already streamed
+				result = new PMDAnalysisResult(null, Map.of());
+			}
+			else
+			{
+				result = new PMDAnalysisResult(
+					this.runAnalysis(classLoaderLease, pmdConfig, ruleSets, ideFiles, progressListener, null),
+					this.fileIdPsiFiles(ideFiles));
+			}
+		}
+		finally
+		{
+			// executeAll only returns (or throws) when no batch is running anymore
+			classLoaderLease.close();
+			if(useAnalysisCache)
+			{
+				analysisCache.release();
+			}
 		}
 		
 		progressIndicator.setText("Finishing analysis");
 		progressIndicator.setText2("");
 		progressIndicator.setIndeterminate(true);
 		
-		final PMDAnalysisResult result = new PMDAnalysisResult(
-			report,
-			ideFiles.stream()
-				.filter(IDETextFile::hasFileId)
-				.collect(Collectors.toMap(
-					IDETextFile::getFileIdIfPresent,
-					IDETextFile::getPsiFile)));
-		
 		LOG.info("Analysis took " + (System.currentTimeMillis() - startMs) + "ms");
 		
 		return result;
 	}
 	
+	/**
+	 * @return the report or <code>null</code> if a streaming listener was supplied
+	 */
+	@Nullable
+	private Report runAnalysis(
+		final ClassLoaderLease classLoaderLease,
+		final PMDConfiguration pmdConfig,
+		final List<RuleSet> ruleSets,
+		final List<IDETextFile> ideFiles,
+		final ProgressReportingAnalysisListener progressListener,
+		@Nullable final StreamingAnalysisListener streamingListener)
+	{
+		// PMD reads the snapshots without acquiring a read action
+		captureContents(ideFiles);
+		
+		// The configuration (including the classloader) and the already initialized rules are shared by all runs
+		return classLoaderLease.runAnalysis(() -> {
+			try(final PmdAnalysis pmd = PmdAnalysis.create(pmdConfig))
+			{
+				pmd.addRuleSets(ruleSets);
+				ideFiles.forEach(pmd.files()::addFile);
+				pmd.addListener(progressListener);
+				
+				if(streamingListener != null)
+				{
+					pmd.addListener(streamingListener);
+					pmd.performAnalysis();
+					return null;
+				}
+				return pmd.performAnalysisAndCollectReport();
+			}
+		});
+	}
+	
+	private static void captureContents(final List<IDETextFile> ideFiles)
+	{
+		for(int from = 0; from < ideFiles.size(); from += CONTENTS_SNAPSHOT_BATCH_SIZE)
+		{
+			final List<IDETextFile> batch =
+				ideFiles.subList(from, Math.min(ideFiles.size(), from + CONTENTS_SNAPSHOT_BATCH_SIZE));
+			ReadAction.run(() -> batch.forEach(IDETextFile::captureContents));
+		}
+	}
+	
+	private Map<FileId, PsiFile> fileIdPsiFiles(final List<IDETextFile> ideFiles)
+	{
+		return ideFiles.stream()
+			.filter(IDETextFile::hasFileId)
+			.filter(f -> f.getPsiFile() != null)
+			.collect(Collectors.toMap(
+				IDETextFile::getFileIdIfPresent,
+				IDETextFile::getPsiFile));
+	}
+	
 	static class ProgressReportingAnalysisListener implements GlobalAnalysisListener
 	{
 		private final AtomicInteger counter = new AtomicInteger(0);
@@ -242,7 +408,7 @@ public class PMDAnalyzer implements Disposable
 		public FileAnalysisListener startFileAnalysis(final TextFile file)
 		{
 			this.progressIndicator.setFraction((double)this.counter.incrementAndGet() / this.totalFiles);
-			this.progressIndicator.setText2(((IDETextFile)file).getPsiFile().getName());
+			this.progressIndicator.setText2(((IDETextFile)file).getName());
 			return FileAnalysisListener.noop();
 		}
 		
@@ -287,11 +453,67 @@ public class PMDAnalyzer implements Disposable
 	private Map<Language, Map<LanguageVersion, List<PsiFile>>> groupPsiFilesBySupportedLanguageAndVersion(
 		final Collection<PsiFile> files)
 	{
-		final ManagedLanguageVersionResolver resolver = new ManagedLanguageVersionResolver();
+		final ModuleLanguageVersionCache languageVersionCache =
+			this.project.getService(ModuleLanguageVersionCache.class);
+		
+		// Single read action for all files instead of one per file
+		return groupBySupportedLanguage(ReadAction.computeBlocking(() -> files.stream()
+			.collect(Collectors.groupingBy(languageVersionCache::resolve))));
+	}
+	
+	private Map<Language, Map<LanguageVersion, List<VirtualFile>>> groupVirtualFilesBySupportedLanguageAndVersion(
+		final Collection<VirtualFile> files)
+	{
+		final ModuleLanguageVersionCache languageVersionCache =
+			this.project.getService(ModuleLanguageVersionCache.class);
+		final PsiManager psiManager = PsiManager.getInstance(this.project);
+		final ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(this.project);
 		
-		return files.stream()
-			.collect(Collectors.groupingBy(resolver::resolveLanguage))
-			.entrySet()
+		return groupBySupportedLanguage(ReadAction.computeBlocking(() -> {
+			final Map<ModuleFileTypeKey, List<VirtualFile>> filesByModuleAndType = files.stream()
+				.collect(Collectors.groupingBy(f -> new ModuleFileTypeKey(
+					fileIndex.getModuleForFile(f),
+					f.getFileType())));
+			
+			final Map<Optional<LanguageVersion>, List<VirtualFile>> filesByLanguageVersion = new HashMap<>();
+			filesByModuleAndType.forEach((key, moduleFiles) -> {
+				// All files of the same type share the same language
+				final Optional<LanguageVersion> firstVersion = moduleFiles.stream()
+					.map(psiManager::findFile)
+					.filter(Objects::nonNull)
+					.findFirst()
+					.flatMap(languageVersionCache::resolve);
+				if(firstVersion.isEmpty())
+				{
+					return;
+				}
+				
+				// Only create PSI for a single file of each type per module if the version is the same for all of them
+				if(key.module() != null
+					&& languageVersionCache.isVersionModuleWide(firstVersion.orElseThrow().getLanguage()))
+				{
+					filesByLanguageVersion.computeIfAbsent(firstVersion, k -> new ArrayList<>()).addAll(moduleFiles);
+					return;
+				}
+				for(final VirtualFile file : moduleFiles)
+				{
+					final PsiFile psiFile = psiManager.findFile(file);
+					if(psiFile != null)
+					{
+						filesByLanguageVersion.computeIfAbsent(
+							languageVersionCache.resolve(psiFile),
+							k -> new ArrayList<>()).add(file);
+					}
+				}
+			});
+			return filesByLanguageVersion;
+		}));
+	}
+	
+	private static <F> Map<Language, Map<LanguageVersion, List<F>>> groupBySupportedLanguage(
+		final Map<Optional<LanguageVersion>, List<F>> filesByLanguageVersion)
+	{
+		return filesByLanguageVersion.entrySet()
 			.stream()
 			.filter(e -> e.getKey().isPresent())
 			.collect(Collectors.groupingBy(
@@ -299,10 +521,10 @@ public class PMDAnalyzer implements Disposable
 				Collectors.toMap(e -> e.getKey().orElseThrow(), Map.Entry::getValue)));
 	}
 	
-	private Map<LanguageVersion, Set<PsiFile>> getHighestLanguageVersionAndFiles(
-		final Map<Language, Map<LanguageVersion, List<PsiFile>>> groupPsiFilesByLanguageAndVersion)
+	private <F> Map<LanguageVersion, Set<F>> getHighestLanguageVersionAndFiles(
+		final Map<Language, Map<LanguageVersion, List<F>>> groupFilesByLanguageAndVersion)
 	{
-		return groupPsiFilesByLanguageAndVersion.entrySet()
+		return groupFilesByLanguageAndVersion.entrySet()
 			.stream()
 			.collect(Collectors.toMap(
 				e -> e.getValue()
@@ -317,72 +539,15 @@ public class PMDAnalyzer implements Disposable
 					.collect(Collectors.toSet())));
 	}
 	
-	@NotNull
-	private ClasspathClassLoader classLoaderFor(final List<Module> modules)
-	{
-		final Set<String> fullClassPaths = this.classPathFor(modules, UnaryOperator.identity());
-		final Set<String> appClassPaths = this.classPathFor(modules, o -> o.withoutSdk().withoutLibraries());
-		final Set<String> sdkLibClassPaths = fullClassPaths.stream()
-			.filter(s -> !appClassPaths.contains(s))
-			.collect(Collectors.toSet());
-		
-		return this.createClasspathClassLoader(
-			appClassPaths,
-			this.cachedSdkLibAuxClassLoader.computeIfAbsent(
-				sdkLibClassPaths,
-				paths -> this.createClasspathClassLoader(paths, PMDConfiguration.class.getClassLoader())));
-	}
-	
-	private Set<String> classPathFor(
-		final Collection<Module> modules,
-		final UnaryOperator<OrderEnumerator> mapOrderEnumerator)
-	{
-		return modules.stream()
-			.map(OrderEnumerator::orderEntries)
-			.map(OrderEnumerator::recursively)
-			.map(mapOrderEnumerator)
-			.map(OrderEnumerator::getPathsList)
-			.map(PathsList::getPathList)
-			.flatMap(Collection::stream)
-			.collect(Collectors.toSet());
-	}
-	
-	private ClasspathClassLoader createClasspathClassLoader(
-		final Set<String> classPaths,
-		final ClassLoader parentLoader)
-	{
-		try
-		{
-			return new ClasspathClassLoader(String.join(File.pathSeparator, classPaths), parentLoader);
-		}
-		catch(final IOException e)
-		{
-			throw new UncheckedIOException(e);
-		}
-	}
-	
-	@Override
-	public void dispose()
+	record ModuleFileTypeKey(
+		@Nullable Module module,
+		FileType fileType)
 	{
-		this.cacheFiles.values()
-			.stream()
-			.map(CacheFile::path)
-			.forEach(f -> {
-				try
-				{
-					Files.deleteIfExists(f);
-				}
-				catch(final IOException ioe)
-				{
-					LOG.warn("Failed to delete cache file", ioe);
-				}
-			});
-		this.cacheFiles.clear();
 	}
 	
-	record CacheFile(
-		Path path,
-		String absolutePath)
+	record BulkRun(
+		BulkAnalysisExecutor.RunBudget runBudget,
+		Consumer<PMDAnalysisResult> streamingResultConsumer)
 	{
 	}
 }
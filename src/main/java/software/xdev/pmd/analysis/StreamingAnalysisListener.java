@@ -0,0 +1,98 @@
+package software.xdev.pmd.analysis;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.intellij.psi.PsiFile;
+
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.GlobalAnalysisListener;
+import net.sourceforge.pmd.reporting.Report;
+import net.sourceforge.pmd.reporting.RuleViolation;
+
+
+/**
+ * Emits the result of every file as soon as its analysis is finished, instead of collecting everything into a single
+ * report.
+ * <p>
+ * Configuration errors are not bound to a file and are therefore emitted when the analysis is closed.
+ * </p>
+ */
+class StreamingAnalysisListener implements GlobalAnalysisListener
+{
+	private final Consumer<PMDAnalysisResult> resultConsumer;
+	private final boolean emitConfigErrors;
+	private final Report.GlobalReportBuilderListener configErrorsReportBuilder =
+		new Report.GlobalReportBuilderListener();
+	
+	StreamingAnalysisListener(final Consumer<PMDAnalysisResult> resultConsumer, final boolean emitConfigErrors)
+	{
+		this.resultConsumer = resultConsumer;
+		this.emitConfigErrors = emitConfigErrors;
+	}
+	
+	@Override
+	public FileAnalysisListener startFileAnalysis(final TextFile file)
+	{
+		final IDETextFile ideTextFile = (IDETextFile)file;
+		final Report.ReportBuilderListener reportBuilder = new Report.ReportBuilderListener();
+		return new FileAnalysisListener()
+		{
+			@Override
+			public void onRuleViolation(final RuleViolation violation)
+			{
+				reportBuilder.onRuleViolation(violation);
+			}
+			
+			@Override
+			public void onSuppressedRuleViolation(final Report.SuppressedViolation violation)
+			{
+				reportBuilder.onSuppressedRuleViolation(violation);
+			}
+			
+			@Override
+			public void onError(final Report.ProcessingError error)
+			{
+				reportBuilder.onError(error);
+			}
+			
+			@Override
+			public void close()
+			{
+				reportBuilder.close();
+				final Report report = reportBuilder.getResult();
+				// PSI is only required (and therefore created) for displaying results
+				final PsiFile psiFile = hasResults(report) ? ideTextFile.getPsiFile() : null;
+				StreamingAnalysisListener.this.resultConsumer.accept(new PMDAnalysisResult(
+					report,
+					psiFile != null ? Map.of(ideTextFile.getFileId(), psiFile) : Map.of(),
+					1));
+			}
+		};
+	}
+	
+	private static boolean hasResults(final Report report)
+	{
+		return !report.getViolations().isEmpty()
+			|| !report.getSuppressedViolations().isEmpty()
+			|| !report.getProcessingErrors().isEmpty();
+	}
+	
+	@Override
+	public void onConfigError(final Report.ConfigurationError error)
+	{
+		this.configErrorsReportBuilder.onConfigError(error);
+	}
+	
+	@Override
+	public void close()
+	{
+		this.configErrorsReportBuilder.close();
+		final Report report = this.configErrorsReportBuilder.getResult();
+		if(this.emitConfigErrors && !report.getConfigurationErrors().isEmpty())
+		{
+			this.resultConsumer.accept(new PMDAnalysisResult(report, Map.of()));
+		}
+	}
+}
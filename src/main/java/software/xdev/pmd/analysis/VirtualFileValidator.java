@@ -0,0 +1,55 @@
+package software.xdev.pmd.analysis;
+
+import java.util.Optional;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.JavaProjectRootsUtil;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import software.xdev.pmd.config.PluginConfiguration;
+
+
+/**
+ * Counterpart of {@link PsiFileValidator} that works without PSI.
+ * <p>
+ * Whether the file is supported by PMD is determined later when resolving the language.
+ * </p>
+ */
+public final class VirtualFileValidator
+{
+	private VirtualFileValidator()
+	{
+	}
+	
+	public static boolean isScannable(
+		@Nullable final VirtualFile file,
+		@NotNull final Optional<Module> optModule,
+		@NotNull final Project project,
+		@NotNull final PluginConfiguration pluginConfig)
+	{
+		if(file == null || !file.isValid() || file.isDirectory() || file.getFileType().isBinary())
+		{
+			return false;
+		}
+		
+		final ProjectFileIndex projectFileIndex = ProjectFileIndex.getInstance(project);
+		return projectFileIndex.isInSourceContent(file)
+			&& (pluginConfig.scanScope().includeTestClasses() || !projectFileIndex.isInTestSourceContent(file))
+			&& modulesMatch(projectFileIndex.getModuleForFile(file), optModule)
+			&& !JavaProjectRootsUtil.isInGeneratedCode(file, project);
+	}
+	
+	private static boolean modulesMatch(
+		@Nullable final Module fileModule,
+		final Optional<Module> optModule)
+	{
+		return optModule
+			.map(module -> module.equals(fileModule))
+			.orElse(true);
+	}
+}
@@ -0,0 +1,234 @@
+package software.xdev.pmd.analysis.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.intellij.ide.plugins.IdeaPluginDescriptor;
+import com.intellij.ide.plugins.PluginManagerCore;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.extensions.PluginId;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+
+import net.sourceforge.pmd.PMDVersion;
+
+
+/**
+ * Locates the PMD analysis cache files of a project.
+ * <p>
+ * The files are stored inside the IDE's system directory, so that they survive restarts. Every module has a stable
+ * file name. The directory is versioned by PMD and plugin version, as the cache format may change between them.
+ * </p>
+ * <p>
+ * Outdated versions and files of modules that no longer exist are removed once per session before the first cache
+ * file is used. The size cap is enforced at that point and again whenever cache files were written (see
+ * {@link #enforceSizeCap()}), as they grow while the project is open.
+ * </p>
+ */
+public class AnalysisCacheFiles
+{
+	private static final Logger LOG = Logger.getInstance(AnalysisCacheFiles.class);
+	
+	private static final String PLUGIN_ID = "software.xdev.pmd";
+	private static final String CACHE_FILE_EXTENSION = ".cache";
+	private static final String NO_MODULE_FILE_NAME = "project" + CACHE_FILE_EXTENSION;
+	private static final long MAX_TOTAL_SIZE_BYTES = 256L * 1024 * 1024;
+	
+	private final Project project;
+	private final Path projectDir;
+	private final Path versionDir;
+	
+	private final AtomicBoolean cleanedUp = new AtomicBoolean();
+	
+	public AnalysisCacheFiles(@NotNull final Project project)
+	{
+		this.project = project;
+		this.projectDir = Path.of(PathManager.getSystemPath(), "pmd-x", "analysis-cache", project.getLocationHash());
+		this.versionDir = this.projectDir.resolve(FileUtil.sanitizeFileName(
+			PMDVersion.VERSION + "-" + pluginVersion()));
+	}
+	
+	private static String pluginVersion()
+	{
+		return Optional.ofNullable(PluginManagerCore.getPlugin(PluginId.getId(PLUGIN_ID)))
+			.map(IdeaPluginDescriptor::getVersion)
+			.orElse("unknown");
+	}
+	
+	/**
+	 * @return the (stable) location of the cache file for the module
+	 */
+	public Path cacheFileFor(final Optional<Module> optModule)
+	{
+		this.cleanUpIfRequired();
+		
+		try
+		{
+			Files.createDirectories(this.versionDir);
+		}
+		catch(final IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return this.versionDir.resolve(fileNameFor(optModule));
+	}
+	
+	private static String fileNameFor(final Optional<Module> optModule)
+	{
+		return optModule
+			.map(Module::getName)
+			// Module names might only differ in characters that are replaced when sanitizing -> append the hash
+			.map(name -> FileUtil.sanitizeFileName(name)
+				+ "-" + Integer.toHexString(name.hashCode())
+				+ CACHE_FILE_EXTENSION)
+			.orElse(NO_MODULE_FILE_NAME);
+	}
+	
+	private void cleanUpIfRequired()
+	{
+		if(this.cleanedUp.get())
+		{
+			return;
+		}
+		synchronized(this)
+		{
+			if(this.cleanedUp.get())
+			{
+				return;
+			}
+			try
+			{
+				this.cleanUp();
+			}
+			catch(final IOException | UncheckedIOException ex)
+			{
+				LOG.warn("Failed to clean up analysis cache files", ex);
+			}
+			this.cleanedUp.set(true);
+		}
+	}
+	
+	private void cleanUp() throws IOException
+	{
+		if(!Files.isDirectory(this.projectDir))
+		{
+			return;
+		}
+		
+		// Cache files of other PMD/plugin versions can't be used anymore
+		try(final Stream<Path> dirs = Files.list(this.projectDir))
+		{
+			dirs.filter(dir -> !dir.equals(this.versionDir))
+				.forEach(dir -> {
+					LOG.info("Removing outdated analysis cache " + dir);
+					FileUtil.delete(dir.toFile());
+				});
+		}
+		
+		if(!Files.isDirectory(this.versionDir))
+		{
+			return;
+		}
+		
+		final Set<String> expectedFileNames = Stream.concat(
+				Stream.of(NO_MODULE_FILE_NAME),
+				Arrays.stream(ModuleManager.getInstance(this.project).getModules())
+					.map(m -> fileNameFor(Optional.of(m))))
+			.collect(Collectors.toSet());
+		
+		try(final Stream<Path> files = Files.list(this.versionDir))
+		{
+			for(final Path file : files.toList())
+			{
+				if(!expectedFileNames.contains(file.getFileName().toString()))
+				{
+					LOG.debug("Removing orphaned analysis cache file " + file);
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		
+		this.removeFilesExceedingSizeCap();
+	}
+	
+	/**
+	 * Removes the least recently written cache files until the size cap is met.
+	 *
+	 * @return the removed files
+	 */
+	public List<Path> enforceSizeCap()
+	{
+		try
+		{
+			return this.removeFilesExceedingSizeCap();
+		}
+		catch(final IOException | UncheckedIOException ex)
+		{
+			LOG.warn("Failed to enforce size cap of analysis cache files", ex);
+			return List.of();
+		}
+	}
+	
+	private synchronized List<Path> removeFilesExceedingSizeCap() throws IOException
+	{
+		if(!Files.isDirectory(this.versionDir))
+		{
+			return List.of();
+		}
+		
+		final List<CacheFileInfo> cacheFiles = new ArrayList<>();
+		try(final Stream<Path> files = Files.list(this.versionDir))
+		{
+			for(final Path file : files.toList())
+			{
+				// Ignore e.g. temporary files of a rewrite that is in progress
+				if(file.getFileName().toString().endsWith(CACHE_FILE_EXTENSION))
+				{
+					final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					cacheFiles.add(new CacheFileInfo(file, attributes.size(), attributes.lastModifiedTime()));
+				}
+			}
+		}
+		
+		// Keep the most recently used ones
+		cacheFiles.sort(Comparator.comparing(CacheFileInfo::lastModified).reversed());
+		final List<Path> removed = new ArrayList<>();
+		long totalSize = 0;
+		for(final CacheFileInfo info : cacheFiles)
+		{
+			totalSize += info.size();
+			if(totalSize > MAX_TOTAL_SIZE_BYTES)
+			{
+				LOG.info("Removing analysis cache file " + info.path() + " as the size cap was exceeded");
+				Files.deleteIfExists(info.path());
+				removed.add(info.path());
+			}
+		}
+		return removed;
+	}
+	
+	record CacheFileInfo(
+		Path path,
+		long size,
+		FileTime lastModified)
+	{
+	}
+}
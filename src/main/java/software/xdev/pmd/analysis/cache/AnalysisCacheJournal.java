@@ -0,0 +1,451 @@
+package software.xdev.pmd.analysis.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.FileLocation;
+import net.sourceforge.pmd.lang.document.TextRange2d;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.reporting.RuleViolation;
+
+
+/**
+ * Append-only file that stores the analysis results of a module.
+ * <p>
+ * The header contains the checksums of the rules and the classpath the results are valid for. It's followed by one
+ * entry per changed file; later entries supersede earlier ones of the same file. A flush therefore only appends the
+ * files that changed since the last flush. The file is rewritten when the header changes or when it contains too
+ * many superseded entries.
+ * </p>
+ * <p>
+ * File format: <code>MAGIC, FORMAT_VERSION, ruleSetsChecksum (long), classpathChecksum (long)</code> followed by the
+ * entries: <code>entryLength (int), path, fileChecksum (long), violationCount (int; -1 if removed),
+ * violations</code>
+ * </p>
+ */
+class AnalysisCacheJournal
+{
+	private static final Logger LOG = Logger.getInstance(AnalysisCacheJournal.class);
+	
+	private static final int MAGIC = 0x504D4443;
+	// Increase when the format changes
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+	private static final int REMOVED = -1;
+	
+	private final Path file;
+	
+	// Length of the file without an incompletely written entry at the end
+	private long validLength = -1;
+	private int entryCount;
+	
+	AnalysisCacheJournal(final Path file)
+	{
+		this.file = file;
+	}
+	
+	Path getFile()
+	{
+		return this.file;
+	}
+	
+	/**
+	 * @return number of entries in the file (including superseded ones)
+	 */
+	int entryCount()
+	{
+		return this.entryCount;
+	}
+	
+	/**
+	 * @return the contents or <code>null</code> if the file doesn't exist or can't be read
+	 */
+	@Nullable
+	Contents read()
+	{
+		this.validLength = -1;
+		this.entryCount = 0;
+		if(!Files.exists(this.file))
+		{
+			return null;
+		}
+		
+		try
+		{
+			final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(this.file));
+			if(buffer.remaining() < HEADER_BYTES
+				|| buffer.getInt() != MAGIC
+				|| buffer.getInt() != FORMAT_VERSION)
+			{
+				LOG.info("Analysis cache " + this.file + " has an incompatible format, discarding it");
+				return null;
+			}
+			final long ruleSetsChecksum = buffer.getLong();
+			final long classpathChecksum = buffer.getLong();
+			
+			final Map<String, FileResult> results = new HashMap<>();
+			int count = 0;
+			while(buffer.hasRemaining())
+			{
+				final Entry entry = readEntry(buffer);
+				if(entry == null)
+				{
+					// Incompletely written (e.g. the IDE was killed) -> ignore the rest (truncated before appending)
+					LOG.debug("Ignoring incomplete entry at the end of " + this.file);
+					break;
+				}
+				count++;
+				if(entry.result() != null)
+				{
+					results.put(entry.path(), entry.result());
+				}
+				else
+				{
+					results.remove(entry.path());
+				}
+			}
+			this.validLength = buffer.position();
+			this.entryCount = count;
+			return new Contents(ruleSetsChecksum, classpathChecksum, results);
+		}
+		catch(final IOException | RuntimeException ex)
+		{
+			LOG.warn("Failed to read analysis cache " + this.file + ", discarding it", ex);
+			return null;
+		}
+	}
+	
+	/**
+	 * Appends the entries to the file. Requires that the file was {@link #read() read} or {@link #rewrite written}
+	 * before.
+	 */
+	void append(final Collection<Entry> entries) throws IOException
+	{
+		if(entries.isEmpty())
+		{
+			return;
+		}
+		if(this.validLength < HEADER_BYTES)
+		{
+			throw new IllegalStateException("Analysis cache " + this.file + " has no valid header");
+		}
+		
+		try(final FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE))
+		{
+			// Entries that are appended after an incomplete entry could never be read
+			if(channel.size() > this.validLength)
+			{
+				channel.truncate(this.validLength);
+			}
+			channel.position(this.validLength);
+			for(final Entry entry : entries)
+			{
+				final ByteBuffer encoded = encode(entry);
+				while(encoded.hasRemaining())
+				{
+					channel.write(encoded);
+				}
+			}
+			this.validLength = channel.position();
+		}
+		this.entryCount += entries.size();
+	}
+	
+	/**
+	 * Replaces the file with one that only contains the header and the results.
+	 */
+	void rewrite(
+		final long ruleSetsChecksum,
+		final long classpathChecksum,
+		final Map<String, FileResult> results) throws IOException
+	{
+		final Path tempFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+		long length = 0;
+		try(final FileChannel channel = FileChannel.open(
+			tempFile,
+			StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+				.putInt(MAGIC)
+				.putInt(FORMAT_VERSION)
+				.putLong(ruleSetsChecksum)
+				.putLong(classpathChecksum)
+				.flip();
+			length += channel.write(header);
+			for(final Map.Entry<String, FileResult> result : results.entrySet())
+			{
+				final ByteBuffer encoded = encode(new Entry(result.getKey(), result.getValue()));
+				while(encoded.hasRemaining())
+				{
+					length += channel.write(encoded);
+				}
+			}
+		}
+		Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+		this.validLength = length;
+		this.entryCount = results.size();
+	}
+	
+	private static ByteBuffer encode(final Entry entry)
+	{
+		try
+		{
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bos);
+			out.writeInt(0); // Length - set below
+			writeString(out, entry.path());
+			final FileResult result = entry.result();
+			if(result == null)
+			{
+				out.writeLong(0);
+				out.writeInt(REMOVED);
+			}
+			else
+			{
+				out.writeLong(result.fileChecksum());
+				out.writeInt(result.violations().size());
+				for(final Violation violation : result.violations())
+				{
+					writeViolation(out, violation);
+				}
+			}
+			out.flush();
+			
+			final ByteBuffer buffer = ByteBuffer.wrap(bos.toByteArray());
+			buffer.putInt(0, buffer.limit() - Integer.BYTES);
+			return buffer;
+		}
+		catch(final IOException ex)
+		{
+			// Can't happen for in-memory streams
+			throw new UncheckedIOException(ex);
+		}
+	}
+	
+	private static void writeViolation(final DataOutputStream out, final Violation violation) throws IOException
+	{
+		writeString(out, violation.ruleKey().ruleClass());
+		writeString(out, violation.ruleKey().ruleName());
+		writeString(out, violation.ruleKey().languageId());
+		writeString(out, violation.description());
+		out.writeInt(violation.beginLine());
+		out.writeInt(violation.beginColumn());
+		out.writeInt(violation.endLine());
+		out.writeInt(violation.endColumn());
+		out.writeInt(violation.additionalInfo().size());
+		for(final Map.Entry<String, String> info : violation.additionalInfo().entrySet())
+		{
+			writeString(out, info.getKey());
+			writeString(out, info.getValue());
+		}
+	}
+	
+	private static void writeString(final DataOutputStream out, final String value) throws IOException
+	{
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	/**
+	 * @return the entry at the current position of the buffer or <code>null</code> if it's incomplete
+	 */
+	@Nullable
+	private static Entry readEntry(final ByteBuffer buffer)
+	{
+		if(buffer.remaining() < Integer.BYTES)
+		{
+			return null;
+		}
+		final int length = buffer.getInt(buffer.position());
+		if(length < 0 || buffer.remaining() - Integer.BYTES < length)
+		{
+			return null;
+		}
+		buffer.position(buffer.position() + Integer.BYTES);
+		final ByteBuffer entryBuffer = buffer.slice(buffer.position(), length);
+		buffer.position(buffer.position() + length);
+		
+		try
+		{
+			final String path = readString(entryBuffer);
+			final long fileChecksum = entryBuffer.getLong();
+			final int violationCount = entryBuffer.getInt();
+			if(violationCount == REMOVED)
+			{
+				return new Entry(path, null);
+			}
+			final List<Violation> violations = new ArrayList<>(violationCount);
+			for(int i = 0; i < violationCount; i++)
+			{
+				violations.add(readViolation(entryBuffer));
+			}
+			return new Entry(path, new FileResult(fileChecksum, violations));
+		}
+		catch(final BufferUnderflowException | IllegalArgumentException ex)
+		{
+			throw new IllegalStateException("Corrupt entry in analysis cache", ex);
+		}
+	}
+	
+	private static Violation readViolation(final ByteBuffer buffer)
+	{
+		final RuleKey ruleKey = new RuleKey(readString(buffer), readString(buffer), readString(buffer));
+		final String description = readString(buffer);
+		final int beginLine = buffer.getInt();
+		final int beginColumn = buffer.getInt();
+		final int endLine = buffer.getInt();
+		final int endColumn = buffer.getInt();
+		final int additionalInfoCount = buffer.getInt();
+		final Map<String, String> additionalInfo = new LinkedHashMap<>();
+		for(int i = 0; i < additionalInfoCount; i++)
+		{
+			additionalInfo.put(readString(buffer), readString(buffer));
+		}
+		return new Violation(ruleKey, description, beginLine, beginColumn, endLine, endColumn, additionalInfo);
+	}
+	
+	private static String readString(final ByteBuffer buffer)
+	{
+		final byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	record Contents(
+		long ruleSetsChecksum,
+		long classpathChecksum,
+		Map<String, FileResult> results)
+	{
+	}
+	
+	
+	/**
+	 * @param result <code>null</code> if the result of the file was removed
+	 */
+	record Entry(
+		String path,
+		@Nullable FileResult result)
+	{
+	}
+	
+	
+	record FileResult(
+		long fileChecksum,
+		List<Violation> violations)
+	{
+	}
+	
+	
+	record RuleKey(
+		String ruleClass,
+		String ruleName,
+		String languageId)
+	{
+		static RuleKey of(final Rule rule)
+		{
+			return new RuleKey(rule.getRuleClass(), rule.getName(), rule.getLanguage().getId());
+		}
+	}
+	
+	
+	record Violation(
+		RuleKey ruleKey,
+		String description,
+		int beginLine,
+		int beginColumn,
+		int endLine,
+		int endColumn,
+		Map<String, String> additionalInfo)
+	{
+		static Violation of(final RuleViolation violation)
+		{
+			return new Violation(
+				RuleKey.of(violation.getRule()),
+				violation.getDescription(),
+				violation.getBeginLine(),
+				violation.getBeginColumn(),
+				violation.getEndLine(),
+				violation.getEndColumn(),
+				nonNullValues(violation.getAdditionalInfo()));
+		}
+		
+		private static Map<String, String> nonNullValues(final Map<String, String> additionalInfo)
+		{
+			final Map<String, String> copy = new LinkedHashMap<>();
+			additionalInfo.forEach((key, value) -> {
+				if(key != null && value != null)
+				{
+					copy.put(key, value);
+				}
+			});
+			return copy;
+		}
+		
+		RuleViolation toRuleViolation(final Rule rule, final FileId fileId)
+		{
+			return new CachedRuleViolation(
+				rule,
+				this.description,
+				FileLocation.range(
+					fileId,
+					TextRange2d.range2d(this.beginLine, this.beginColumn, this.endLine, this.endColumn)),
+				this.additionalInfo);
+		}
+	}
+	
+	
+	record CachedRuleViolation(
+		Rule rule,
+		String description,
+		FileLocation location,
+		Map<String, String> additionalInfo) implements RuleViolation
+	{
+		@Override
+		public Rule getRule()
+		{
+			return this.rule;
+		}
+		
+		@Override
+		public String getDescription()
+		{
+			return this.description;
+		}
+		
+		@Override
+		public FileLocation getLocation()
+		{
+			return this.location;
+		}
+		
+		@Override
+		public Map<String, String> getAdditionalInfo()
+		{
+			return this.additionalInfo;
+		}
+	}
+}
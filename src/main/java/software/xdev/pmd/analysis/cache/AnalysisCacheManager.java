@@ -0,0 +1,112 @@
+package software.xdev.pmd.analysis.cache;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import software.xdev.pmd.analysis.classpath.ClasspathModificationTracker;
+
+
+/**
+ * Manages the (long-living) analysis caches of a project and writes them to disk in the background.
+ * <p>
+ * A cache is written when there were no further changes for a short time (e.g. the user stopped typing) or at the
+ * latest after {@link #MAX_FLUSH_DELAY_MS}. All pending changes are written when the project is closed.
+ * </p>
+ * <p>
+ * The size cap of the cache files is checked after the caches were written. The results of caches whose file was
+ * removed are discarded, so that they are not written again.
+ * </p>
+ */
+public class AnalysisCacheManager implements Disposable
+{
+	private static final Logger LOG = Logger.getInstance(AnalysisCacheManager.class);
+	
+	private static final long CHECK_INTERVAL_MS = 5_000;
+	private static final long QUIET_PERIOD_MS = 10_000;
+	private static final long MAX_FLUSH_DELAY_MS = 60_000;
+	
+	private final Project project;
+	
+	private final LockContentionMetric contentionMetric = new LockContentionMetric();
+	private final Map<Optional<Module>, WriteBehindAnalysisCache> caches = new ConcurrentHashMap<>();
+	private final ScheduledFuture<?> flushFuture;
+	
+	public AnalysisCacheManager(@NotNull final Project project)
+	{
+		this.project = project;
+		this.flushFuture = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+			this::flushIfRequired,
+			CHECK_INTERVAL_MS,
+			CHECK_INTERVAL_MS,
+			TimeUnit.MILLISECONDS);
+	}
+	
+	public WriteBehindAnalysisCache cacheFor(final Optional<Module> optModule)
+	{
+		return this.caches.computeIfAbsent(
+			optModule,
+			m -> new WriteBehindAnalysisCache(
+				this.project.getService(AnalysisCacheFiles.class).cacheFileFor(m),
+				this.contentionMetric,
+				ClasspathModificationTracker.getInstance(this.project)));
+	}
+	
+	private void flushIfRequired()
+	{
+		final long now = System.currentTimeMillis();
+		final List<WriteBehindAnalysisCache> flushRequired = this.caches.values()
+			.stream()
+			.filter(c -> c.shouldFlush(now, QUIET_PERIOD_MS, MAX_FLUSH_DELAY_MS))
+			.toList();
+		if(!flushRequired.isEmpty())
+		{
+			flushRequired.forEach(c -> c.flush(false));
+			this.enforceSizeCap();
+		}
+	}
+	
+	public void flushAll()
+	{
+		this.caches.values().forEach(c -> c.flush(true));
+		this.enforceSizeCap();
+	}
+	
+	private void enforceSizeCap()
+	{
+		final List<Path> removed = this.project.getService(AnalysisCacheFiles.class).enforceSizeCap();
+		if(!removed.isEmpty())
+		{
+			this.caches.values()
+				.stream()
+				.filter(c -> removed.contains(c.getFile()))
+				.forEach(WriteBehindAnalysisCache::discard);
+		}
+	}
+	
+	public LockContentionMetric getContentionMetric()
+	{
+		return this.contentionMetric;
+	}
+	
+	@Override
+	public void dispose()
+	{
+		LOG.info("Analysis cache lock contention: " + this.contentionMetric);
+		this.flushFuture.cancel(false);
+		this.flushAll();
+		this.caches.clear();
+	}
+}
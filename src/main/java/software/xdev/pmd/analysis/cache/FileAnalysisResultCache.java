@@ -0,0 +1,284 @@
+package software.xdev.pmd.analysis.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.reporting.Report;
+import software.xdev.pmd.analysis.NoAnalysisReason;
+import software.xdev.pmd.analysis.PMDAnalysisResult;
+import software.xdev.pmd.analysis.classpath.ClasspathModificationTracker;
+import software.xdev.pmd.config.PluginConfiguration;
+import software.xdev.pmd.config.PluginConfigurationManager;
+import software.xdev.pmd.model.config.ConfigurationLocation;
+import software.xdev.pmd.model.scope.ScanScope;
+
+
+/**
+ * Caches the results of single file analyses (e.g. from the annotator).
+ * <p>
+ * A result is only reused when the document, the active rules and the classpath are unchanged. Entries are not bound
+ * to open editors, so reopening a recently closed file doesn't require a new analysis.
+ * </p>
+ * <p>
+ * Only the {@link VirtualFile VirtualFiles} of the results are kept, so that closed files don't keep their PSI trees
+ * alive. The PSI is looked up again when a result is reused.
+ * </p>
+ */
+public class FileAnalysisResultCache
+{
+	private static final Logger LOG = Logger.getInstance(FileAnalysisResultCache.class);
+	
+	private static final int MAX_ENTRIES = 200;
+	private static final long EXPIRE_UNUSED_AFTER_MS = 30 * 60 * 1000L;
+	
+	private final Project project;
+	
+	private final Map<VirtualFile, CachedResult> cache = new LinkedHashMap<>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<VirtualFile, CachedResult> eldest)
+		{
+			return this.size() > MAX_ENTRIES;
+		}
+	};
+	
+	public FileAnalysisResultCache(@NotNull final Project project)
+	{
+		this.project = project;
+	}
+	
+	/**
+	 * @param documentModificationStamp The stamp of the document when its analyzed contents were captured
+	 * @return the key for the file or <code>null</code> if the file can't be cached (e.g. only exists in memory or the
+	 * rulesets are not loaded yet)
+	 */
+	@Nullable
+	public Key keyFor(
+		@NotNull final PsiFile psiFile,
+		final long documentModificationStamp,
+		@NotNull final Collection<ConfigurationLocation> configurationLocations)
+	{
+		final VirtualFile virtualFile = psiFile.getVirtualFile();
+		if(virtualFile == null)
+		{
+			return null;
+		}
+		
+		final Long ruleSetsChecksum = ruleSetsChecksum(configurationLocations);
+		if(ruleSetsChecksum == null)
+		{
+			return null;
+		}
+		
+		final PluginConfiguration pluginConfiguration =
+			this.project.getService(PluginConfigurationManager.class).getCurrent();
+		
+		return new Key(
+			virtualFile,
+			documentModificationStamp,
+			ruleSetsChecksum,
+			ClasspathModificationTracker.getInstance(this.project).getModificationCount(),
+			pluginConfiguration.showSuppressedWarnings(),
+			pluginConfiguration.scanScope());
+	}
+	
+	/**
+	 * @return the checksum or <code>null</code> if a ruleset is not loaded or outdated; loading it is left to the
+	 * analysis
+	 */
+	@Nullable
+	private static Long ruleSetsChecksum(final Collection<ConfigurationLocation> configurationLocations)
+	{
+		// Same aggregation as RuleSets#getChecksum
+		long checksum = 1;
+		for(final ConfigurationLocation location : configurationLocations)
+		{
+			final RuleSet ruleSet = location.getCachedRuleSetIfUpToDate();
+			if(ruleSet == null)
+			{
+				return null;
+			}
+			checksum = checksum * 31 + ruleSet.getChecksum();
+		}
+		return checksum;
+	}
+	
+	@Nullable
+	public PMDAnalysisResult get(@NotNull final Key key)
+	{
+		final long now = System.currentTimeMillis();
+		final CachedResult cached;
+		synchronized(this.cache)
+		{
+			this.removeExpired(now);
+			
+			final CachedResult candidate = this.cache.get(key.file());
+			if(candidate != null && candidate.key().equals(key))
+			{
+				candidate.touch(now);
+				cached = candidate;
+			}
+			else
+			{
+				cached = null;
+			}
+		}
+		
+		final PMDAnalysisResult result = cached != null ? this.toAnalysisResult(cached) : null;
+		if(result != null && LOG.isDebugEnabled())
+		{
+			LOG.debug("Reusing analysis result for " + key.file().getName());
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the result with the current PSI of its files or <code>null</code> if a file is no longer valid
+	 */
+	@Nullable
+	private PMDAnalysisResult toAnalysisResult(final CachedResult cached)
+	{
+		return ReadAction.compute(() -> {
+			final PsiManager psiManager = PsiManager.getInstance(this.project);
+			final Map<FileId, PsiFile> fileIdPsiFiles = new HashMap<>();
+			for(final Map.Entry<FileId, VirtualFile> entry : cached.fileIdVirtualFiles().entrySet())
+			{
+				final PsiFile psiFile = entry.getValue().isValid() ? psiManager.findFile(entry.getValue()) : null;
+				if(psiFile == null)
+				{
+					return null;
+				}
+				fileIdPsiFiles.put(entry.getKey(), psiFile);
+			}
+			return new PMDAnalysisResult(
+				cached.report(),
+				fileIdPsiFiles,
+				cached.analyzedFileCount(),
+				cached.noAnalysisReason());
+		});
+	}
+	
+	public void put(@NotNull final Key key, @NotNull final PMDAnalysisResult result)
+	{
+		final Map<FileId, VirtualFile> fileIdVirtualFiles = new HashMap<>();
+		for(final Map.Entry<FileId, PsiFile> entry : result.fileIdPsiFiles().entrySet())
+		{
+			final VirtualFile virtualFile = entry.getValue() != null ? entry.getValue().getVirtualFile() : null;
+			if(virtualFile == null)
+			{
+				// Can't be looked up again
+				return;
+			}
+			fileIdVirtualFiles.put(entry.getKey(), virtualFile);
+		}
+		
+		final long now = System.currentTimeMillis();
+		synchronized(this.cache)
+		{
+			this.removeExpired(now);
+			this.cache.put(key.file(), new CachedResult(
+				key,
+				result.report(),
+				fileIdVirtualFiles,
+				result.analyzedFileCount(),
+				result.noAnalysisReason(),
+				now));
+		}
+	}
+	
+	private void removeExpired(final long now)
+	{
+		this.cache.values().removeIf(c -> now - c.lastAccessMs() > EXPIRE_UNUSED_AFTER_MS);
+	}
+	
+	public record Key(
+		VirtualFile file,
+		long documentModificationStamp,
+		long ruleSetsChecksum,
+		long classpathModificationCount,
+		boolean showSuppressedWarnings,
+		ScanScope scanScope
+	)
+	{
+	}
+	
+	
+	static final class CachedResult
+	{
+		private final Key key;
+		@Nullable
+		private final Report report;
+		private final Map<FileId, VirtualFile> fileIdVirtualFiles;
+		private final int analyzedFileCount;
+		@Nullable
+		private final NoAnalysisReason noAnalysisReason;
+		private long lastAccessMs;
+		
+		CachedResult(
+			final Key key,
+			@Nullable final Report report,
+			final Map<FileId, VirtualFile> fileIdVirtualFiles,
+			final int analyzedFileCount,
+			@Nullable final NoAnalysisReason noAnalysisReason,
+			final long lastAccessMs)
+		{
+			this.key = key;
+			this.report = report;
+			this.fileIdVirtualFiles = fileIdVirtualFiles;
+			this.analyzedFileCount = analyzedFileCount;
+			this.noAnalysisReason = noAnalysisReason;
+			this.lastAccessMs = lastAccessMs;
+		}
+		
+		Key key()
+		{
+			return this.key;
+		}
+		
+		@Nullable
+		Report report()
+		{
+			return this.report;
+		}
+		
+		Map<FileId, VirtualFile> fileIdVirtualFiles()
+		{
+			return this.fileIdVirtualFiles;
+		}
+		
+		int analyzedFileCount()
+		{
+			return this.analyzedFileCount;
+		}
+		
+		@Nullable
+		NoAnalysisReason noAnalysisReason()
+		{
+			return this.noAnalysisReason;
+		}
+		
+		long lastAccessMs()
+		{
+			return this.lastAccessMs;
+		}
+		
+		void touch(final long now)
+		{
+			this.lastAccessMs = now;
+		}
+	}
+}
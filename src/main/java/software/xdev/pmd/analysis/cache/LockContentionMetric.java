@@ -0,0 +1,63 @@
+package software.xdev.pmd.analysis.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+
+/**
+ * Records how long it took to acquire a lock.
+ */
+public class LockContentionMetric
+{
+	private final AtomicLong acquisitions = new AtomicLong();
+	private final AtomicLong failedAcquisitions = new AtomicLong();
+	private final AtomicLong totalWaitNs = new AtomicLong();
+	private final LongAccumulator maxWaitNs = new LongAccumulator(Math::max, 0);
+	
+	public void record(final long waitNs, final boolean acquired)
+	{
+		if(acquired)
+		{
+			this.acquisitions.incrementAndGet();
+		}
+		else
+		{
+			this.failedAcquisitions.incrementAndGet();
+		}
+		this.totalWaitNs.addAndGet(waitNs);
+		this.maxWaitNs.accumulate(waitNs);
+	}
+	
+	public long getAcquisitions()
+	{
+		return this.acquisitions.get();
+	}
+	
+	public long getFailedAcquisitions()
+	{
+		return this.failedAcquisitions.get();
+	}
+	
+	public long getAverageWaitMs()
+	{
+		final long attempts = this.acquisitions.get() + this.failedAcquisitions.get();
+		return attempts == 0
+			? 0
+			: TimeUnit.NANOSECONDS.toMillis(this.totalWaitNs.get() / attempts);
+	}
+	
+	public long getMaxWaitMs()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(this.maxWaitNs.get());
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "acquisitions=" + this.getAcquisitions()
+			+ ", failed=" + this.getFailedAcquisitions()
+			+ ", avgWait=" + this.getAverageWaitMs() + "ms"
+			+ ", maxWait=" + this.getMaxWaitMs() + "ms";
+	}
+}
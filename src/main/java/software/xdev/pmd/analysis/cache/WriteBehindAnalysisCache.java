@@ -0,0 +1,525 @@
+package software.xdev.pmd.analysis.cache;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ModificationTracker;
+
+import net.sourceforge.pmd.cache.internal.AnalysisCache;
+import net.sourceforge.pmd.cache.internal.ZipFileFingerprinter;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.document.TextFile;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import net.sourceforge.pmd.reporting.Report;
+import net.sourceforge.pmd.reporting.RuleViolation;
+import software.xdev.pmd.analysis.cache.AnalysisCacheJournal.Entry;
+import software.xdev.pmd.analysis.cache.AnalysisCacheJournal.FileResult;
+import software.xdev.pmd.analysis.cache.AnalysisCacheJournal.RuleKey;
+import software.xdev.pmd.analysis.cache.AnalysisCacheJournal.Violation;
+import software.xdev.pmd.analysis.classpath.AuxClasspathFingerprinter;
+
+
+/**
+ * Analysis cache that outlives a single analysis and only writes to disk when {@link #flush(boolean)} is called.
+ * <p>
+ * PMD persists the cache at the end of every analysis. For the annotator this means that the whole cache file of a
+ * module is rewritten after every keystroke-triggered analysis of a single file. This cache instead keeps the results
+ * of all files in memory (the cache file is read completely once) and leaves the writing to
+ * {@link AnalysisCacheManager}. Only the results that changed since the last flush are appended to the
+ * {@link AnalysisCacheJournal journal}.
+ * </p>
+ * <p>
+ * When the rules or the classpath change all results are dropped and the file is rewritten on the next flush.
+ * </p>
+ * <p>
+ * The cache can only be used by one analysis at a time (see {@link #tryAcquire(long)}). The batches of an analysis
+ * may use it concurrently; the results are therefore tracked per file and the validity is only checked by the first
+ * batch (the classpath might change while the batches are running).
+ * </p>
+ * <p>
+ * The validity check (which fingerprints the whole classpath) is skipped when the rules and the classloader are the
+ * same as in the previous check and the classpath wasn't modified in the meantime.
+ * </p>
+ */
+public class WriteBehindAnalysisCache implements AnalysisCache
+{
+	private static final Logger LOG = Logger.getInstance(WriteBehindAnalysisCache.class);
+	
+	// The journal is rewritten when it contains more than twice the entries that are required
+	private static final int COMPACT_FACTOR = 2;
+	private static final int COMPACT_MIN_ENTRIES = 100;
+	
+	private final AnalysisCacheJournal journal;
+	
+	// Guards the cache against concurrent analyses and flushes
+	private final ReentrantLock usageLock = new ReentrantLock();
+	private final LockContentionMetric contentionMetric;
+	// An acquired cache might be used by multiple batches of a bulk analysis concurrently
+	private final Object validityLock = new Object();
+	private final ModificationTracker classpathModificationTracker;
+	@Nullable
+	private ValidatedState lastValidatedState;
+	private boolean validatedForCurrentUsage;
+	private boolean loaded;
+	private long ruleSetsChecksum;
+	private long classpathChecksum;
+	
+	// Keyed by the absolute path of the file
+	private final Map<String, FileResult> results = new ConcurrentHashMap<>();
+	// Files that are currently analyzed
+	private final Map<String, ResultCollector> collectors = new ConcurrentHashMap<>();
+	// Changes that were not written to the journal yet
+	private final Map<String, Entry> unflushed = new ConcurrentHashMap<>();
+	private final AtomicReference<Map<RuleKey, Rule>> rulesByKey = new AtomicReference<>(Map.of());
+	private final AtomicBoolean rewriteRequired = new AtomicBoolean();
+	
+	private final AtomicBoolean dirty = new AtomicBoolean();
+	private final AtomicLong lastChangeMs = new AtomicLong();
+	private final AtomicLong lastFlushMs = new AtomicLong(System.currentTimeMillis());
+	
+	public WriteBehindAnalysisCache(
+		final Path cacheFile,
+		final LockContentionMetric contentionMetric,
+		final ModificationTracker classpathModificationTracker)
+	{
+		this.journal = new AnalysisCacheJournal(cacheFile);
+		this.contentionMetric = contentionMetric;
+		this.classpathModificationTracker = classpathModificationTracker;
+	}
+	
+	@Override
+	public void persist()
+	{
+		// Only mark as changed - writing is done in flush
+		if(!this.unflushed.isEmpty() || this.rewriteRequired.get())
+		{
+			this.lastChangeMs.set(System.currentTimeMillis());
+			this.dirty.set(true);
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if there are changes that should be written to disk
+	 */
+	boolean shouldFlush(final long now, final long quietPeriodMs, final long maxDelayMs)
+	{
+		return this.dirty.get()
+			&& (now - this.lastChangeMs.get() >= quietPeriodMs || now - this.lastFlushMs.get() >= maxDelayMs);
+	}
+	
+	/**
+	 * Tries to acquire this cache for an analysis.
+	 *
+	 * @return <code>true</code> if the cache was acquired and can be used; must be released with {@link #release()}
+	 */
+	public boolean tryAcquire(final long timeoutMs)
+	{
+		final long startNs = System.nanoTime();
+		boolean acquired;
+		try
+		{
+			acquired = this.usageLock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+		}
+		catch(final InterruptedException iex)
+		{
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+		if(acquired)
+		{
+			synchronized(this.validityLock)
+			{
+				this.validatedForCurrentUsage = false;
+			}
+		}
+		final long waitNs = System.nanoTime() - startNs;
+		this.contentionMetric.record(waitNs, acquired);
+		if(LOG.isDebugEnabled())
+		{
+			LOG.debug((acquired ? "Acquired" : "Failed to acquire") + " analysis cache " + this.journal.getFile()
+				+ " after " + TimeUnit.NANOSECONDS.toMillis(waitNs) + "ms [" + this.contentionMetric + "]");
+		}
+		return acquired;
+	}
+	
+	public void release()
+	{
+		this.usageLock.unlock();
+	}
+	
+	Path getFile()
+	{
+		return this.journal.getFile();
+	}
+	
+	/**
+	 * Drops all results, e.g. after the file was removed to enforce the size cap.
+	 * <p>
+	 * Skipped when the cache is in use; the file is then written again and the size cap is enforced again afterward.
+	 * </p>
+	 */
+	void discard()
+	{
+		if(!this.usageLock.tryLock())
+		{
+			return;
+		}
+		try
+		{
+			synchronized(this.validityLock)
+			{
+				this.invalidate();
+			}
+			LOG.debug("Discarded analysis cache " + this.journal.getFile());
+		}
+		finally
+		{
+			this.usageLock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes pending changes to disk.
+	 *
+	 * @param waitForUsage wait until the cache is no longer used; otherwise the flush is skipped when it's in use
+	 */
+	public void flush(final boolean waitForUsage)
+	{
+		if(!this.dirty.get())
+		{
+			return;
+		}
+		
+		if(waitForUsage)
+		{
+			this.usageLock.lock();
+		}
+		else if(!this.usageLock.tryLock())
+		{
+			// Will be retried later
+			return;
+		}
+		try
+		{
+			this.flushInternal();
+		}
+		finally
+		{
+			this.usageLock.unlock();
+		}
+	}
+	
+	private void flushInternal()
+	{
+		if(!this.dirty.getAndSet(false))
+		{
+			return;
+		}
+		
+		final long startMs = System.currentTimeMillis();
+		final long currentRuleSetsChecksum;
+		final long currentClasspathChecksum;
+		synchronized(this.validityLock)
+		{
+			currentRuleSetsChecksum = this.ruleSetsChecksum;
+			currentClasspathChecksum = this.classpathChecksum;
+		}
+		
+		final List<Entry> entries = new ArrayList<>(this.unflushed.values());
+		try
+		{
+			final boolean rewrite = this.rewriteRequired.get()
+				|| this.journal.entryCount() + entries.size()
+				> COMPACT_FACTOR * this.results.size() + COMPACT_MIN_ENTRIES;
+			if(rewrite)
+			{
+				this.journal.rewrite(currentRuleSetsChecksum, currentClasspathChecksum, this.existingResults());
+				this.rewriteRequired.set(false);
+			}
+			else
+			{
+				this.journal.append(entries);
+			}
+			entries.forEach(e -> this.unflushed.remove(e.path(), e));
+			
+			final long endMs = System.currentTimeMillis();
+			this.lastFlushMs.set(endMs);
+			LOG.debug((rewrite ? "Rewrote" : "Appended " + entries.size() + " entries to")
+				+ " analysis cache " + this.journal.getFile() + " in " + (endMs - startMs) + "ms");
+		}
+		catch(final IOException | RuntimeException ex)
+		{
+			LOG.warn("Failed to write analysis cache " + this.journal.getFile(), ex);
+			// The state of the file is unknown
+			this.rewriteRequired.set(true);
+		}
+	}
+	
+	/**
+	 * @return the results of all files that still exist
+	 */
+	private Map<String, FileResult> existingResults()
+	{
+		return this.results.entrySet()
+			.stream()
+			.filter(e -> isExistingFile(e.getKey()))
+			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+	}
+	
+	private static boolean isExistingFile(final String path)
+	{
+		try
+		{
+			return Files.exists(Path.of(path));
+		}
+		catch(final InvalidPathException ex)
+		{
+			return false;
+		}
+	}
+	
+	@Override
+	public boolean isUpToDate(final TextDocument document)
+	{
+		final String path = pathOf(document.getFileId());
+		final long fileChecksum = document.getCheckSum();
+		
+		final FileResult cached = this.results.get(path);
+		final Map<RuleKey, Rule> rules = this.rulesByKey.get();
+		if(cached != null
+			&& cached.fileChecksum() == fileChecksum
+			&& cached.violations().stream().allMatch(v -> rules.containsKey(v.ruleKey())))
+		{
+			return true;
+		}
+		
+		// Collect the violations of the analysis
+		this.collectors.put(path, new ResultCollector(fileChecksum));
+		return false;
+	}
+	
+	@Override
+	public List<RuleViolation> getCachedViolations(final TextDocument sourceFile)
+	{
+		final FileResult cached = this.results.get(pathOf(sourceFile.getFileId()));
+		if(cached == null)
+		{
+			return List.of();
+		}
+		
+		final Map<RuleKey, Rule> rules = this.rulesByKey.get();
+		return cached.violations()
+			.stream()
+			.filter(v -> rules.containsKey(v.ruleKey()))
+			.map(v -> v.toRuleViolation(rules.get(v.ruleKey()), sourceFile.getFileId()))
+			.toList();
+	}
+	
+	@Override
+	public void analysisFailed(final TextDocument sourceFile)
+	{
+		final String path = pathOf(sourceFile.getFileId());
+		this.collectors.remove(path);
+		if(this.results.remove(path) != null)
+		{
+			this.unflushed.put(path, new Entry(path, null));
+		}
+	}
+	
+	@Override
+	public void checkValidity(
+		final RuleSets ruleSets,
+		final ClassLoader auxclassPathClassLoader,
+		final Collection<? extends TextFile> files)
+	{
+		synchronized(this.validityLock)
+		{
+			// The rules might be new instances even if their checksum is unchanged
+			this.rulesByKey.set(rulesByKey(ruleSets));
+			if(this.validatedForCurrentUsage)
+			{
+				// Another batch of the same analysis
+				return;
+			}
+			this.validatedForCurrentUsage = true;
+			
+			// Read before the check so that concurrent modifications cause a new check the next time
+			final ValidatedState state = new ValidatedState(
+				ruleSets.getChecksum(),
+				auxclassPathClassLoader,
+				this.classpathModificationTracker.getModificationCount());
+			if(state.equals(this.lastValidatedState))
+			{
+				LOG.debug("Skipping validity check of analysis cache " + this.journal.getFile()
+					+ " - nothing changed");
+				return;
+			}
+			
+			// Fingerprint the jars of the classpath concurrently; afterwards they only need to be combined
+			if(auxclassPathClassLoader instanceof final URLClassLoader urlClassLoader)
+			{
+				ZipFileFingerprinter.prefetch(List.of(urlClassLoader.getURLs()));
+			}
+			final long currentClasspathChecksum = AuxClasspathFingerprinter.fingerprint(auxclassPathClassLoader);
+			
+			if(!this.loaded)
+			{
+				this.load(state.ruleSetsChecksum(), currentClasspathChecksum);
+				this.loaded = true;
+			}
+			else if(state.ruleSetsChecksum() != this.ruleSetsChecksum
+				|| currentClasspathChecksum != this.classpathChecksum)
+			{
+				LOG.debug("Rules or classpath changed, invalidating analysis cache " + this.journal.getFile());
+				this.invalidate();
+			}
+			this.ruleSetsChecksum = state.ruleSetsChecksum();
+			this.classpathChecksum = currentClasspathChecksum;
+			this.lastValidatedState = state;
+		}
+	}
+	
+	private void load(final long currentRuleSetsChecksum, final long currentClasspathChecksum)
+	{
+		final AnalysisCacheJournal.Contents contents = this.journal.read();
+		if(contents == null)
+		{
+			this.rewriteRequired.set(true);
+			return;
+		}
+		if(contents.ruleSetsChecksum() != currentRuleSetsChecksum
+			|| contents.classpathChecksum() != currentClasspathChecksum)
+		{
+			LOG.debug("Rules or classpath changed, discarding analysis cache " + this.journal.getFile());
+			this.rewriteRequired.set(true);
+			return;
+		}
+		
+		this.results.putAll(contents.results());
+		LOG.debug("Loaded " + contents.results().size() + " results from analysis cache " + this.journal.getFile());
+	}
+	
+	private void invalidate()
+	{
+		this.results.clear();
+		this.collectors.clear();
+		this.unflushed.clear();
+		this.rewriteRequired.set(true);
+	}
+	
+	private static Map<RuleKey, Rule> rulesByKey(final RuleSets ruleSets)
+	{
+		final Map<RuleKey, Rule> rules = new HashMap<>();
+		for(final RuleSet ruleSet : ruleSets.getAllRuleSets())
+		{
+			for(final Rule rule : ruleSet.getRules())
+			{
+				// Same rule in multiple rulesets -> first one wins
+				rules.putIfAbsent(RuleKey.of(rule), rule);
+			}
+		}
+		return rules;
+	}
+	
+	@Override
+	public FileAnalysisListener startFileAnalysis(final TextDocument file)
+	{
+		final String path = pathOf(file.getFileId());
+		return new FileAnalysisListener()
+		{
+			@Override
+			public void onRuleViolation(final RuleViolation violation)
+			{
+				final ResultCollector collector = WriteBehindAnalysisCache.this.collectors.get(path);
+				if(collector != null)
+				{
+					collector.add(Violation.of(violation));
+				}
+			}
+			
+			@Override
+			public void onError(final Report.ProcessingError error)
+			{
+				WriteBehindAnalysisCache.this.analysisFailed(file);
+			}
+			
+			@Override
+			public void close()
+			{
+				WriteBehindAnalysisCache.this.commit(path);
+			}
+		};
+	}
+	
+	private void commit(final String path)
+	{
+		final ResultCollector collector = this.collectors.remove(path);
+		if(collector == null)
+		{
+			// Up to date or failed
+			return;
+		}
+		final FileResult result = collector.toResult();
+		this.results.put(path, result);
+		this.unflushed.put(path, new Entry(path, result));
+	}
+	
+	private static String pathOf(final FileId fileId)
+	{
+		return fileId.getAbsolutePath();
+	}
+	
+	static final class ResultCollector
+	{
+		private final long fileChecksum;
+		private final List<Violation> violations = new ArrayList<>();
+		
+		ResultCollector(final long fileChecksum)
+		{
+			this.fileChecksum = fileChecksum;
+		}
+		
+		synchronized void add(final Violation violation)
+		{
+			this.violations.add(violation);
+		}
+		
+		synchronized FileResult toResult()
+		{
+			return new FileResult(this.fileChecksum, List.copyOf(this.violations));
+		}
+	}
+	
+	
+	/**
+	 * @param auxClassLoader compared by identity; classloaders are reused as long as the classpath is unchanged
+	 */
+	record ValidatedState(
+		long ruleSetsChecksum,
+		ClassLoader auxClassLoader,
+		long classpathModificationCount)
+	{
+	}
+}
@@ -0,0 +1,393 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.util.PathsList;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.internal.util.ClasspathClassLoader;
+
+
+/**
+ * Provides the classloaders that are used by PMD for type resolution.
+ * <p>
+ * Calculating the classpath of a module and opening all of its entries is expensive and was previously done for
+ * every analysis. Both are now reused until the roots of the project change.
+ * </p>
+ * <p>
+ * A classloader keeps its jars open. It's therefore closed as soon as it's no longer cached - because the roots of the
+ * project changed, one of its jars was modified or too many classloaders are cached - and no analysis uses it anymore.
+ * Class files inside output directories are always read from disk so compilation results are visible immediately.
+ * </p>
+ * <p>
+ * Each classloader also keeps the Java type system of its analyses, see {@link JavaTypeSystemReuse}.
+ * </p>
+ */
+public class AnalysisClassLoaderService implements Disposable
+{
+	private static final Logger LOG = Logger.getInstance(AnalysisClassLoaderService.class);
+	
+	private static final int MAX_CACHED_CLASSLOADERS = 32;
+	
+	private final Project project;
+	private final Map<Module, ModuleClassPaths> cachedModuleClassPaths = new ConcurrentHashMap<>();
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	// Least recently used first; guarded by the lock
+	@SuppressWarnings("checkstyle:MagicNumber")
+	private final Map<ClassLoaderKey, CachedClassLoader> cachedClassLoaders = new LinkedHashMap<>(16, 0.75f, true);
+	
+	public AnalysisClassLoaderService(@NotNull final Project project)
+	{
+		this.project = project;
+		project.getMessageBus()
+			.connect(this)
+			.subscribe(ModuleRootListener.TOPIC, new ModuleRootListener()
+			{
+				@Override
+				public void rootsChanged(@NotNull final ModuleRootEvent event)
+				{
+					AnalysisClassLoaderService.this.invalidate();
+				}
+			});
+	}
+	
+	/**
+	 * @return the classloader for the modules; the lease must be closed once it's no longer used
+	 */
+	@NotNull
+	public ClassLoaderLease classLoaderFor(final Collection<Module> modules)
+	{
+		final Set<String> fullClassPaths = new HashSet<>();
+		final Set<String> appClassPaths = new HashSet<>();
+		for(final Module module : modules)
+		{
+			final ModuleClassPaths moduleClassPaths = this.cachedModuleClassPaths.computeIfAbsent(
+				module,
+				m -> new ModuleClassPaths(
+					classPathFor(m, UnaryOperator.identity()),
+					classPathFor(m, o -> o.withoutSdk().withoutLibraries())));
+			fullClassPaths.addAll(moduleClassPaths.full());
+			appClassPaths.addAll(moduleClassPaths.app());
+		}
+		
+		final Set<String> sdkLibClassPaths = fullClassPaths.stream()
+			.filter(s -> !appClassPaths.contains(s))
+			.collect(Collectors.toSet());
+		
+		final long classpathModificationCount =
+			ClasspathModificationTracker.getInstance(this.project).getModificationCount();
+		this.lock.lock();
+		try
+		{
+			final CachedClassLoader sdkLibClassLoader =
+				this.getOrCreate(new ClassLoaderKey(sdkLibClassPaths, null), classpathModificationCount);
+			final CachedClassLoader appClassLoader = this.getOrCreate(
+				new ClassLoaderKey(Set.copyOf(appClassPaths), sdkLibClassLoader),
+				classpathModificationCount);
+			appClassLoader.acquire();
+			return new ClassLoaderLease(appClassLoader, classpathModificationCount);
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private CachedClassLoader getOrCreate(final ClassLoaderKey key, final long classpathModificationCount)
+	{
+		final CachedClassLoader cached = this.cachedClassLoaders.get(key);
+		if(cached != null)
+		{
+			if(cached.isUpToDate(classpathModificationCount))
+			{
+				return cached;
+			}
+			LOG.debug("Jars of classloader were modified, replacing it");
+			this.retire(cached);
+		}
+		
+		final CachedClassLoader created = new CachedClassLoader(key, classpathModificationCount);
+		this.cachedClassLoaders.put(key, created);
+		while(this.cachedClassLoaders.size() > MAX_CACHED_CLASSLOADERS)
+		{
+			this.retire(this.cachedClassLoaders.values().iterator().next());
+		}
+		return created;
+	}
+	
+	/**
+	 * Removes the classloader (and all classloaders that use it as parent) from the cache.
+	 */
+	private void retire(final CachedClassLoader classLoader)
+	{
+		final List<CachedClassLoader> children = this.cachedClassLoaders.values()
+			.stream()
+			.filter(c -> c.key().parent() == classLoader)
+			.toList();
+		children.forEach(this::retire);
+		
+		this.cachedClassLoaders.remove(classLoader.key());
+		classLoader.retire();
+	}
+	
+	private static Set<String> classPathFor(
+		final Module module,
+		final UnaryOperator<OrderEnumerator> mapOrderEnumerator)
+	{
+		final PathsList paths = mapOrderEnumerator.apply(OrderEnumerator.orderEntries(module).recursively())
+			.getPathsList();
+		return Set.copyOf(paths.getPathList());
+	}
+	
+	public void invalidate()
+	{
+		LOG.debug("Invalidating cached classpaths and classloaders");
+		this.cachedModuleClassPaths.clear();
+		this.retireAll();
+	}
+	
+	private void retireAll()
+	{
+		this.lock.lock();
+		try
+		{
+			final List<CachedClassLoader> classLoaders = new ArrayList<>(this.cachedClassLoaders.values());
+			this.cachedClassLoaders.clear();
+			// Closed once the running analyses are finished
+			classLoaders.forEach(CachedClassLoader::retire);
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	@Override
+	public void dispose()
+	{
+		this.cachedModuleClassPaths.clear();
+		this.retireAll();
+	}
+	
+	/**
+	 * A classloader that is used by an analysis. It's not closed before the lease is closed.
+	 */
+	public static final class ClassLoaderLease implements AutoCloseable
+	{
+		private final CachedClassLoader cachedClassLoader;
+		private final long classpathModificationCount;
+		private final AtomicBoolean closed = new AtomicBoolean();
+		
+		ClassLoaderLease(final CachedClassLoader cachedClassLoader, final long classpathModificationCount)
+		{
+			this.cachedClassLoader = cachedClassLoader;
+			this.classpathModificationCount = classpathModificationCount;
+		}
+		
+		public ClasspathClassLoader classLoader()
+		{
+			return this.cachedClassLoader.classLoader();
+		}
+		
+		/**
+		 * Executes a PMD analysis that uses the classloader, reusing the Java type system of previous analyses.
+		 */
+		public <T> T runAnalysis(final Supplier<T> analysis)
+		{
+			return JavaTypeSystemReuse.runWith(
+				this.cachedClassLoader.typeSystemHolder(),
+				this.classpathModificationCount,
+				analysis);
+		}
+		
+		@Override
+		public void close()
+		{
+			if(this.closed.compareAndSet(false, true))
+			{
+				this.cachedClassLoader.release();
+			}
+		}
+	}
+	
+	
+	static final class CachedClassLoader
+	{
+		private final ClassLoaderKey key;
+		private final ClasspathClassLoader classLoader;
+		private final Map<String, Long> jarModificationTimes;
+		private final AtomicLong checkedClasspathModificationCount;
+		private final JavaTypeSystemReuse.Holder typeSystemHolder = new JavaTypeSystemReuse.Holder();
+		// The cache itself is also a user until the classloader is retired
+		private final AtomicInteger users = new AtomicInteger(1);
+		private final AtomicBoolean retired = new AtomicBoolean();
+		
+		CachedClassLoader(final ClassLoaderKey key, final long classpathModificationCount)
+		{
+			this.key = key;
+			this.jarModificationTimes = jarModificationTimes(key.classPaths());
+			this.checkedClasspathModificationCount = new AtomicLong(classpathModificationCount);
+			
+			final CachedClassLoader parent = key.parent();
+			this.classLoader = createClasspathClassLoader(
+				key.classPaths(),
+				parent != null ? parent.classLoader() : PMDConfiguration.class.getClassLoader());
+			if(parent != null)
+			{
+				parent.acquire();
+			}
+		}
+		
+		ClassLoaderKey key()
+		{
+			return this.key;
+		}
+		
+		ClasspathClassLoader classLoader()
+		{
+			return this.classLoader;
+		}
+		
+		JavaTypeSystemReuse.Holder typeSystemHolder()
+		{
+			return this.typeSystemHolder;
+		}
+		
+		/**
+		 * @return if none of the jars was modified; they are only checked again when the classpath was modified
+		 */
+		boolean isUpToDate(final long classpathModificationCount)
+		{
+			if(this.checkedClasspathModificationCount.get() == classpathModificationCount)
+			{
+				return true;
+			}
+			if(!this.jarModificationTimes.equals(jarModificationTimes(this.key.classPaths())))
+			{
+				return false;
+			}
+			this.checkedClasspathModificationCount.set(classpathModificationCount);
+			return true;
+		}
+		
+		void acquire()
+		{
+			this.users.incrementAndGet();
+		}
+		
+		void release()
+		{
+			if(this.users.decrementAndGet() > 0)
+			{
+				return;
+			}
+			
+			try
+			{
+				this.classLoader.close();
+			}
+			catch(final IOException ex)
+			{
+				LOG.warn("Failed to close classloader", ex);
+			}
+			if(this.key.parent() != null)
+			{
+				this.key.parent().release();
+			}
+		}
+		
+		void retire()
+		{
+			if(this.retired.compareAndSet(false, true))
+			{
+				this.release();
+			}
+		}
+		
+		private static Map<String, Long> jarModificationTimes(final Set<String> classPaths)
+		{
+			final Map<String, Long> modificationTimes = new HashMap<>();
+			for(final String classPath : classPaths)
+			{
+				try
+				{
+					final Path path = Path.of(classPath);
+					// Directories are always read from disk
+					if(Files.isRegularFile(path))
+					{
+						modificationTimes.put(classPath, Files.getLastModifiedTime(path).toMillis());
+					}
+				}
+				catch(final InvalidPathException | IOException ex)
+				{
+					// Will be detected as modified when it becomes readable
+					modificationTimes.put(classPath, -1L);
+				}
+			}
+			return modificationTimes;
+		}
+		
+		private static ClasspathClassLoader createClasspathClassLoader(
+			final Set<String> classPaths,
+			final ClassLoader parentLoader)
+		{
+			try
+			{
+				return new ClasspathClassLoader(String.join(File.pathSeparator, classPaths), parentLoader);
+			}
+			catch(final IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
+	
+	record ModuleClassPaths(
+		Set<String> full,
+		Set<String> app)
+	{
+	}
+	
+	
+	/**
+	 * @param parent compared by identity
+	 */
+	record ClassLoaderKey(
+		Set<String> classPaths,
+		@Nullable CachedClassLoader parent)
+	{
+	}
+}
@@ -0,0 +1,148 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Adler32;
+import java.util.zip.Checksum;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtilRt;
+
+import net.sourceforge.pmd.cache.internal.RawFileFingerprinter;
+import net.sourceforge.pmd.cache.internal.ZipFileFingerprinter;
+
+
+/**
+ * Calculates the checksum of the auxiliary classpath of an analysis.
+ * <p>
+ * Archives and class files are fingerprinted by the (cached) fingerprinters of PMD. The fingerprints of directories
+ * (e.g. the output directories of modules) are kept and updated when the compiler or the file system reports a change
+ * (see {@link CompiledClassFileListener}).
+ * </p>
+ */
+public final class AuxClasspathFingerprinter
+{
+	private static final Logger LOG = Logger.getInstance(AuxClasspathFingerprinter.class);
+	
+	private static final ZipFileFingerprinter ZIP_FILE_FINGERPRINTER = new ZipFileFingerprinter();
+	private static final RawFileFingerprinter RAW_FILE_FINGERPRINTER = new RawFileFingerprinter();
+	private static final ClasspathDirectoryFingerprints DIRECTORY_FINGERPRINTS =
+		new ClasspathDirectoryFingerprints(AuxClasspathFingerprinter::fingerprintFile);
+	
+	private AuxClasspathFingerprinter()
+	{
+	}
+	
+	/**
+	 * @return the checksum of the classpath or <code>0</code> if the classloader has no classpath
+	 */
+	public static long fingerprint(final ClassLoader classLoader)
+	{
+		if(!(classLoader instanceof final URLClassLoader urlClassLoader))
+		{
+			return 0;
+		}
+		
+		final Checksum checksum = new Adler32();
+		try
+		{
+			for(final URL url : urlClassLoader.getURLs())
+			{
+				fingerprint(url, checksum);
+			}
+		}
+		catch(final IOException | UncheckedIOException ex)
+		{
+			LOG.warn("Failed to fingerprint classpath, the analysis cache can't be reused", ex);
+			// Never matches a stored checksum
+			return ThreadLocalRandom.current().nextLong();
+		}
+		return checksum.getValue();
+	}
+	
+	/**
+	 * The file was created, modified or deleted.
+	 */
+	public static void fileChanged(final Path file)
+	{
+		DIRECTORY_FINGERPRINTS.fileChanged(file);
+	}
+	
+	/**
+	 * The directory was created, moved or deleted.
+	 */
+	public static void directoryChanged(final Path directory)
+	{
+		DIRECTORY_FINGERPRINTS.directoryChanged(directory);
+	}
+	
+	private static void fingerprint(final URL url, final Checksum checksum) throws IOException
+	{
+		final Path directory = directoryOf(url);
+		if(directory == null)
+		{
+			fingerprintFile(null, url, url.getPath(), checksum);
+			return;
+		}
+		
+		checksum.update(ByteBuffer.allocate(Long.BYTES).putLong(DIRECTORY_FINGERPRINTS.fingerprint(directory)).array());
+	}
+	
+	@Nullable
+	private static Long fingerprintFile(final Path directory, final Path file) throws IOException
+	{
+		final Checksum checksum = new Adler32();
+		return fingerprintFile(directory, file.toUri().toURL(), file.getFileName().toString(), checksum)
+			? checksum.getValue()
+			: null;
+	}
+	
+	@Nullable
+	private static Path directoryOf(final URL url)
+	{
+		try
+		{
+			final Path path = Path.of(url.toURI());
+			return Files.isDirectory(path) ? path : null;
+		}
+		catch(final URISyntaxException | IllegalArgumentException ex)
+		{
+			// Not a file
+			return null;
+		}
+	}
+	
+	/**
+	 * @return if the file is part of the classpath
+	 */
+	private static boolean fingerprintFile(
+		@Nullable final Path directory,
+		final URL url,
+		final String name,
+		final Checksum checksum)
+		throws IOException
+	{
+		final String extension = FileUtilRt.getExtension(name).toLowerCase(Locale.ROOT);
+		if(ZIP_FILE_FINGERPRINTER.appliesTo(extension))
+		{
+			ZIP_FILE_FINGERPRINTER.fingerprint(url, checksum);
+			return true;
+		}
+		if(RAW_FILE_FINGERPRINTER.appliesTo(extension))
+		{
+			RAW_FILE_FINGERPRINTER.fingerprint(directory, url, checksum);
+			return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,201 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.Adler32;
+import java.util.zip.Checksum;
+
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * Fingerprints of the directories on the classpath (e.g. the output directories of modules).
+ * <p>
+ * The fingerprint of every file inside a directory is kept. A directory is only walked again when the file system
+ * reports a change of its structure (e.g. a package was moved); changed files (reported by the compiler or the file
+ * system) are fingerprinted individually. The fingerprint of an unchanged directory is therefore calculated without
+ * accessing the file system.
+ * </p>
+ */
+class ClasspathDirectoryFingerprints
+{
+	private final FileFingerprinter fileFingerprinter;
+	private final Map<Path, DirectoryFingerprint> directories = new ConcurrentHashMap<>();
+	
+	ClasspathDirectoryFingerprints(final FileFingerprinter fileFingerprinter)
+	{
+		this.fileFingerprinter = fileFingerprinter;
+	}
+	
+	long fingerprint(final Path directory) throws IOException
+	{
+		return this.directories.computeIfAbsent(directory, DirectoryFingerprint::new)
+			.fingerprint(this.fileFingerprinter);
+	}
+	
+	/**
+	 * The file was created, modified or deleted.
+	 */
+	void fileChanged(final Path file)
+	{
+		this.directories.forEach((directory, fingerprint) -> {
+			if(file.startsWith(directory))
+			{
+				fingerprint.fileChanged(file);
+			}
+		});
+	}
+	
+	/**
+	 * The directory was created, moved or deleted.
+	 */
+	void directoryChanged(final Path changedDirectory)
+	{
+		this.directories.keySet().removeIf(directory -> directory.startsWith(changedDirectory));
+		this.directories.forEach((directory, fingerprint) -> {
+			if(changedDirectory.startsWith(directory))
+			{
+				fingerprint.walkRequired();
+			}
+		});
+	}
+	
+	@FunctionalInterface
+	interface FileFingerprinter
+	{
+		/**
+		 * @return the fingerprint of the file or <code>null</code> if it isn't part of the classpath (e.g. a resource)
+		 */
+		@Nullable
+		Long fingerprint(Path directory, Path file) throws IOException;
+	}
+	
+	static final class DirectoryFingerprint
+	{
+		private final Path directory;
+		
+		private final AtomicBoolean walkRequired = new AtomicBoolean(true);
+		private final Set<Path> changedFiles = ConcurrentHashMap.newKeySet();
+		
+		// Not synchronized so that the virtual threads of concurrent analyses are not pinned during the I/O
+		private final ReentrantLock lock = new ReentrantLock();
+		// Guarded by the lock; sorted so that the fingerprint doesn't depend on the file system or the event order
+		private final NavigableMap<Path, Long> fileFingerprints = new TreeMap<>();
+		@Nullable
+		private Long fingerprint;
+		
+		DirectoryFingerprint(final Path directory)
+		{
+			this.directory = directory;
+		}
+		
+		void fileChanged(final Path file)
+		{
+			this.changedFiles.add(file);
+		}
+		
+		void walkRequired()
+		{
+			this.walkRequired.set(true);
+		}
+		
+		long fingerprint(final FileFingerprinter fileFingerprinter) throws IOException
+		{
+			this.lock.lock();
+			try
+			{
+				// Reset before reading so that changes during the update are processed by the next fingerprint
+				if(this.walkRequired.getAndSet(false))
+				{
+					this.changedFiles.clear();
+					this.walk(fileFingerprinter);
+				}
+				else if(!this.changedFiles.isEmpty())
+				{
+					this.updateChangedFiles(fileFingerprinter);
+				}
+				
+				if(this.fingerprint == null)
+				{
+					this.fingerprint = this.aggregate();
+				}
+				return this.fingerprint;
+			}
+			catch(final IOException | UncheckedIOException ex)
+			{
+				this.walkRequired.set(true);
+				throw ex;
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+		}
+		
+		private void walk(final FileFingerprinter fileFingerprinter) throws IOException
+		{
+			this.fileFingerprints.clear();
+			this.fingerprint = null;
+			try(final Stream<Path> stream = Files.walk(this.directory))
+			{
+				for(final Iterator<Path> iterator = stream.iterator(); iterator.hasNext(); )
+				{
+					this.update(iterator.next(), fileFingerprinter);
+				}
+			}
+		}
+		
+		private void updateChangedFiles(final FileFingerprinter fileFingerprinter) throws IOException
+		{
+			for(final Iterator<Path> iterator = this.changedFiles.iterator(); iterator.hasNext(); )
+			{
+				final Path file = iterator.next();
+				iterator.remove();
+				this.fileFingerprints.remove(file);
+				this.update(file, fileFingerprinter);
+			}
+			this.fingerprint = null;
+		}
+		
+		private void update(final Path file, final FileFingerprinter fileFingerprinter) throws IOException
+		{
+			if(!Files.isRegularFile(file))
+			{
+				return;
+			}
+			final Long fileFingerprint = fileFingerprinter.fingerprint(this.directory, file);
+			if(fileFingerprint != null)
+			{
+				this.fileFingerprints.put(file, fileFingerprint);
+			}
+		}
+		
+		private long aggregate()
+		{
+			final Checksum checksum = new Adler32();
+			this.fileFingerprints.forEach((file, fileFingerprint) -> {
+				// Also detects renamed files
+				updateChecksum(checksum, this.directory.relativize(file).toString().hashCode());
+				updateChecksum(checksum, fileFingerprint);
+			});
+			return checksum.getValue();
+		}
+		
+		private static void updateChecksum(final Checksum checksum, final long value)
+		{
+			checksum.update(ByteBuffer.allocate(Long.BYTES).putLong(value).array());
+		}
+	}
+}
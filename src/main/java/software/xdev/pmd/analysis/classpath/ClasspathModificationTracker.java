@@ -0,0 +1,197 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.util.SystemInfoRt;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.messages.MessageBusConnection;
+
+
+/**
+ * Tracks changes that might affect the classpath (and therefore the classpath checksum) of the modules of a project.
+ * <p>
+ * The modification count is increased when
+ * <ul>
+ *     <li>the roots of the project change (e.g. dependencies are added)</li>
+ *     <li>archives or class files on the classpath (e.g. inside output directories) are changed in the file system</li>
+ *     <li>a compilation finished (see {@link CompiledClassFileListener})</li>
+ * </ul>
+ * As long as it's unchanged the classpath doesn't need to be fingerprinted again.
+ * </p>
+ * <p>
+ * File system changes outside of the classpath (e.g. class files of other tools or directories of the sources) are
+ * ignored. The classpath roots are collected once and again when the roots of the project change. Events are
+ * matched against them by set lookups of the event path and its parents, so the cost of an event doesn't depend on
+ * the number of roots.
+ * </p>
+ */
+public class ClasspathModificationTracker extends SimpleModificationTracker implements Disposable
+{
+	private static final Logger LOG = Logger.getInstance(ClasspathModificationTracker.class);
+	
+	private static final Set<String> CLASSPATH_FILE_EXTENSIONS = Set.of("class", "jar", "zip");
+	
+	private final Project project;
+	// Jars and directories on the classpath of the project; null = not yet collected
+	private final AtomicReference<ClasspathRoots> classpathRoots = new AtomicReference<>();
+	
+	public static ClasspathModificationTracker getInstance(@NotNull final Project project)
+	{
+		return project.getService(ClasspathModificationTracker.class);
+	}
+	
+	public ClasspathModificationTracker(@NotNull final Project project)
+	{
+		this.project = project;
+		final MessageBusConnection connection = project.getMessageBus().connect(this);
+		connection.subscribe(ModuleRootListener.TOPIC, new ModuleRootListener()
+		{
+			@Override
+			public void rootsChanged(@NotNull final ModuleRootEvent event)
+			{
+				ClasspathModificationTracker.this.classpathRoots.set(null);
+				ClasspathModificationTracker.this.classpathChanged("roots changed");
+			}
+		});
+		connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener()
+		{
+			@Override
+			public void after(@NotNull final List<? extends @NotNull VFileEvent> events)
+			{
+				final ClasspathRoots roots = ClasspathModificationTracker.this.getClasspathRoots();
+				if(events.stream().anyMatch(event -> mightAffectClasspath(event, roots)))
+				{
+					ClasspathModificationTracker.this.classpathChanged("classpath files changed");
+				}
+			}
+		});
+	}
+	
+	private static boolean mightAffectClasspath(final VFileEvent event, final ClasspathRoots roots)
+	{
+		if(!(event.getFileSystem() instanceof LocalFileSystem))
+		{
+			return false;
+		}
+		
+		final VirtualFile file = event.getFile();
+		final boolean directory = file != null && file.isDirectory();
+		if(!directory && !CLASSPATH_FILE_EXTENSIONS.contains(FileUtilRt.getExtension(event.getPath())))
+		{
+			return false;
+		}
+		
+		final String path = event.getPath();
+		return roots.isInside(path)
+			// e.g. when the directory that contains an output directory is deleted
+			|| (directory && roots.isAncestor(path));
+	}
+	
+	private ClasspathRoots getClasspathRoots()
+	{
+		return this.classpathRoots.updateAndGet(roots -> roots != null
+			? roots
+			: ClasspathRoots.of(ReadAction.compute(() -> OrderEnumerator.orderEntries(this.project)
+				.getPathsList()
+				.getPathList())));
+	}
+	
+	public void classpathChanged(final String reason)
+	{
+		this.incModificationCount();
+		if(LOG.isDebugEnabled())
+		{
+			LOG.debug("Classpath modified (" + reason + ") [modificationCount=" + this.getModificationCount() + "]");
+		}
+	}
+	
+	@Override
+	public void dispose()
+	{
+		// Only required as parent of the message bus connection
+	}
+	
+	/**
+	 * @param roots     system independent paths of the roots
+	 * @param ancestors system independent paths of all directories that contain a root
+	 */
+	record ClasspathRoots(
+		Set<String> roots,
+		Set<String> ancestors)
+	{
+		static ClasspathRoots of(final Collection<String> paths)
+		{
+			final Set<String> roots = new HashSet<>();
+			final Set<String> ancestors = new HashSet<>();
+			for(final String path : paths)
+			{
+				final String root = key(FileUtil.toSystemIndependentName(path));
+				roots.add(root);
+				String parent = parentOf(root);
+				// Stops once the parents were already added by another root
+				while(parent != null && ancestors.add(parent))
+				{
+					parent = parentOf(parent);
+				}
+			}
+			return new ClasspathRoots(Set.copyOf(roots), Set.copyOf(ancestors));
+		}
+		
+		/**
+		 * @return if the path is a root or inside of one
+		 */
+		boolean isInside(final String path)
+		{
+			for(String current = key(path); current != null; current = parentOf(current))
+			{
+				if(this.roots.contains(current))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * @return if the path contains a root
+		 */
+		boolean isAncestor(final String path)
+		{
+			return this.ancestors.contains(key(path));
+		}
+		
+		@Nullable
+		private static String parentOf(final String path)
+		{
+			final int index = path.lastIndexOf('/');
+			return index > 0 ? path.substring(0, index) : null;
+		}
+		
+		private static String key(final String path)
+		{
+			return SystemInfoRt.isFileSystemCaseSensitive ? path : path.toLowerCase(Locale.ROOT);
+		}
+	}
+}
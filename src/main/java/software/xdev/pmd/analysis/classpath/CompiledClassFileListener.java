@@ -0,0 +1,101 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.intellij.openapi.compiler.CompilationStatusListener;
+import com.intellij.openapi.compiler.CompileContext;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+
+import net.sourceforge.pmd.cache.internal.RawFileFingerprinter;
+
+
+/**
+ * Removes the cached fingerprints of class files and updates the fingerprints of classpath directories (e.g. the
+ * output directories of modules) when the compiler or the file system reports a change.
+ * <p>
+ * Finished compilations are also reported to the {@link ClasspathModificationTracker} of the project.
+ * </p>
+ */
+public class CompiledClassFileListener implements CompilationStatusListener, BulkFileListener
+{
+	private static final Logger LOG = Logger.getInstance(CompiledClassFileListener.class);
+	
+	private static final String CLASS_FILE_SUFFIX = ".class";
+	
+	@Override
+	public void fileGenerated(@NotNull final String outputRoot, @NotNull final String relativePath)
+	{
+		invalidate(outputRoot + "/" + relativePath, false);
+	}
+	
+	@Override
+	public void compilationFinished(
+		final boolean aborted,
+		final int errors,
+		final int warnings,
+		@NotNull final CompileContext compileContext)
+	{
+		ClasspathModificationTracker.getInstance(compileContext.getProject()).classpathChanged("compilation finished");
+	}
+	
+	@Override
+	public void automakeCompilationFinished(
+		final int errors,
+		final int warnings,
+		@NotNull final CompileContext compileContext)
+	{
+		ClasspathModificationTracker.getInstance(compileContext.getProject())
+			.classpathChanged("automake compilation finished");
+	}
+	
+	@Override
+	public void after(@NotNull final List<? extends @NotNull VFileEvent> events)
+	{
+		for(final VFileEvent event : events)
+		{
+			final boolean directory = event.getFile() != null && event.getFile().isDirectory();
+			if(event instanceof final VFileMoveEvent moveEvent)
+			{
+				invalidate(moveEvent.getOldPath(), directory);
+			}
+			else if(event instanceof final VFilePropertyChangeEvent propertyChangeEvent
+				&& propertyChangeEvent.isRename())
+			{
+				invalidate(propertyChangeEvent.getOldPath(), directory);
+			}
+			invalidate(event.getPath(), directory);
+		}
+	}
+	
+	private static void invalidate(final String path, final boolean directory)
+	{
+		try
+		{
+			if(directory)
+			{
+				RawFileFingerprinter.invalidateDirectory(Path.of(path));
+				AuxClasspathFingerprinter.directoryChanged(Path.of(path));
+				return;
+			}
+			
+			if(path.endsWith(CLASS_FILE_SUFFIX))
+			{
+				RawFileFingerprinter.invalidate(Path.of(path));
+			}
+			// Only files inside fingerprinted directories are processed
+			AuxClasspathFingerprinter.fileChanged(Path.of(path));
+		}
+		catch(final InvalidPathException ex)
+		{
+			LOG.debug("Failed to invalidate fingerprint of " + path, ex);
+		}
+	}
+}
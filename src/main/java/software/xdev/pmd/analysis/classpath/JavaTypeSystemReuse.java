@@ -0,0 +1,153 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.java.internal.JavaLanguageProcessor;
+import net.sourceforge.pmd.lang.java.types.TypeSystem;
+
+
+/**
+ * Reuses the Java type system of an analysis in the following analyses that use the same classloader.
+ * <p>
+ * The type system contains the symbols of all classes that were loaded from the classpath. PMD creates a new one for
+ * every analysis, so every analysis had to read and parse all referenced classes again. Once PMD created the language
+ * processors of an analysis (see the forked {@link net.sourceforge.pmd.lang.rule.internal.RuleSets}), the type system
+ * of the Java processor is replaced with the one of a previous analysis.
+ * </p>
+ * <p>
+ * A type system is only reused as long as the classpath is unmodified (e.g. no compilation finished), as it would
+ * otherwise contain outdated symbols. It can be used by concurrent analyses, as PMD also shares it between its worker
+ * threads.
+ * </p>
+ */
+public final class JavaTypeSystemReuse
+{
+	private static final Logger LOG = Logger.getInstance(JavaTypeSystemReuse.class);
+	
+	private static final ThreadLocal<Request> CURRENT_REQUEST = new ThreadLocal<>();
+	
+	@Nullable
+	private static final Field TYPE_SYSTEM_FIELD = findTypeSystemField();
+	
+	private JavaTypeSystemReuse()
+	{
+	}
+	
+	@Nullable
+	private static Field findTypeSystemField()
+	{
+		try
+		{
+			final Field field = JavaLanguageProcessor.class.getDeclaredField("typeSystem");
+			field.setAccessible(true);
+			return field;
+		}
+		catch(final NoSuchFieldException | RuntimeException ex)
+		{
+			LOG.warn("Failed to find type system of JavaLanguageProcessor, type systems will not be reused", ex);
+			return null;
+		}
+	}
+	
+	/**
+	 * Executes the analysis on the current thread. Its Java type system is taken from or stored in the holder.
+	 */
+	static <T> T runWith(final Holder holder, final long classpathModificationCount, final Supplier<T> analysis)
+	{
+		final Request previous = CURRENT_REQUEST.get();
+		CURRENT_REQUEST.set(new Request(holder, classpathModificationCount));
+		try
+		{
+			return analysis.get();
+		}
+		finally
+		{
+			if(previous != null)
+			{
+				CURRENT_REQUEST.set(previous);
+			}
+			else
+			{
+				CURRENT_REQUEST.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Called by PMD once the language processors of an analysis are created and before any file is analyzed.
+	 */
+	public static void onLanguageProcessorsCreated(final LanguageProcessorRegistry lpReg)
+	{
+		final Request request = CURRENT_REQUEST.get();
+		if(request == null || TYPE_SYSTEM_FIELD == null)
+		{
+			return;
+		}
+		
+		for(final Language language : lpReg.getLanguages())
+		{
+			if(lpReg.getProcessor(language) instanceof final JavaLanguageProcessor processor)
+			{
+				request.holder().exchange(processor, request.classpathModificationCount());
+			}
+		}
+	}
+	
+	/**
+	 * Holds the type system of a classloader.
+	 */
+	static final class Holder
+	{
+		// Soft so that large type systems can be collected when memory is low
+		private final AtomicReference<CachedTypeSystem> cached = new AtomicReference<>();
+		
+		void exchange(final JavaLanguageProcessor processor, final long classpathModificationCount)
+		{
+			try
+			{
+				final CachedTypeSystem current = this.cached.get();
+				final TypeSystem reusable = current != null
+					&& current.classpathModificationCount() == classpathModificationCount
+					? current.typeSystem().get()
+					: null;
+				if(reusable != null)
+				{
+					TYPE_SYSTEM_FIELD.set(processor, reusable);
+					return;
+				}
+				
+				// Keep the type system of this analysis for the following ones
+				this.cached.set(new CachedTypeSystem(
+					classpathModificationCount,
+					new SoftReference<>((TypeSystem)TYPE_SYSTEM_FIELD.get(processor))));
+			}
+			catch(final IllegalAccessException | RuntimeException ex)
+			{
+				LOG.warn("Failed to reuse type system", ex);
+			}
+		}
+	}
+	
+	
+	record CachedTypeSystem(
+		long classpathModificationCount,
+		SoftReference<TypeSystem> typeSystem)
+	{
+	}
+	
+	
+	record Request(
+		Holder holder,
+		long classpathModificationCount)
+	{
+	}
+}
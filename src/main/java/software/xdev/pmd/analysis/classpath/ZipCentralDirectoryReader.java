@@ -0,0 +1,247 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import com.intellij.openapi.diagnostic.Logger;
+
+
+/**
+ * Reads the CRCs of all class files inside a zip (jar) file directly from its central directory.
+ * <p>
+ * Only the end of the file (end of central directory record) and the central directory are read. Names and CRCs are
+ * read from the buffer without creating {@link ZipEntry ZipEntries} or Strings. If the file can't be read this way
+ * (e.g. because it contains data before the archive) it's read with a {@link ZipFile} instead.
+ * </p>
+ * <p>
+ * The buffers are intentionally not memory-mapped: mapped buffers are only unmapped by the garbage collector and keep
+ * the file locked on Windows until then.
+ * </p>
+ * <p>
+ * The CRCs are ordered by the hash of the entry name (and the CRC), so that the order of the entries inside the zip
+ * doesn't matter.
+ * </p>
+ */
+// Offsets are defined by the zip specification
+@SuppressWarnings("checkstyle:MagicNumber")
+public final class ZipCentralDirectoryReader
+{
+	private static final Logger LOG = Logger.getInstance(ZipCentralDirectoryReader.class);
+	
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int EOCD_MIN_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+	private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_EOCD_LOCATOR_SIZE = 20;
+	private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_EOCD_SIZE = 56;
+	private static final int CEN_SIGNATURE = 0x02014b50;
+	private static final int CEN_HEADER_SIZE = 46;
+	
+	private static final long UINT16_MAX = 0xFFFFL;
+	private static final long UINT32_MAX = 0xFFFFFFFFL;
+	
+	private static final byte[] CLASS_SUFFIX = ".class".getBytes(StandardCharsets.US_ASCII);
+	
+	private ZipCentralDirectoryReader()
+	{
+	}
+	
+	/**
+	 * @return the CRCs of all class files
+	 */
+	public static int[] readClassCrcs(final File file) throws IOException
+	{
+		try
+		{
+			return readFromCentralDirectory(file);
+		}
+		catch(final ZipException | IndexOutOfBoundsException | IllegalArgumentException ex)
+		{
+			LOG.debug("Failed to read central directory of " + file + ", falling back to ZipFile", ex);
+			return readWithZipFile(file);
+		}
+	}
+	
+	static int[] readFromCentralDirectory(final File file) throws IOException
+	{
+		try(final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			final long fileSize = channel.size();
+			final long tailStart = Math.max(0, fileSize - EOCD_MIN_SIZE - MAX_COMMENT_SIZE);
+			final ByteBuffer tail = read(channel, tailStart, (int)(fileSize - tailStart));
+			
+			final int eocd = findEndOfCentralDirectory(tail);
+			long entries = Short.toUnsignedLong(tail.getShort(eocd + 10));
+			long cenSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+			long cenOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+			
+			if(entries == UINT16_MAX || cenSize == UINT32_MAX || cenOffset == UINT32_MAX)
+			{
+				final int locator = eocd - ZIP64_EOCD_LOCATOR_SIZE;
+				if(locator < 0 || tail.getInt(locator) != ZIP64_EOCD_LOCATOR_SIGNATURE)
+				{
+					throw new ZipException("Missing ZIP64 end of central directory locator");
+				}
+				final long zip64EocdOffset = tail.getLong(locator + 8);
+				final ByteBuffer zip64Eocd = read(channel, zip64EocdOffset, ZIP64_EOCD_SIZE);
+				if(zip64Eocd.getInt(0) != ZIP64_EOCD_SIGNATURE)
+				{
+					throw new ZipException("Invalid ZIP64 end of central directory");
+				}
+				entries = zip64Eocd.getLong(32);
+				cenSize = zip64Eocd.getLong(40);
+				cenOffset = zip64Eocd.getLong(48);
+			}
+			
+			if(cenSize > Integer.MAX_VALUE || entries > cenSize / CEN_HEADER_SIZE
+				|| cenOffset + cenSize > fileSize)
+			{
+				throw new ZipException("Invalid central directory [entries=" + entries + ",size=" + cenSize + "]");
+			}
+			
+			return readCentralDirectory(read(channel, cenOffset, (int)cenSize), (int)entries);
+		}
+	}
+	
+	private static ByteBuffer read(final FileChannel channel, final long position, final int size)
+		throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining())
+		{
+			if(channel.read(buffer, position + buffer.position()) < 0)
+			{
+				throw new ZipException("Unexpected end of file at " + (position + buffer.position()));
+			}
+		}
+		return buffer.flip();
+	}
+	
+	private static int findEndOfCentralDirectory(final ByteBuffer tail) throws ZipException
+	{
+		for(int pos = tail.limit() - EOCD_MIN_SIZE; pos >= 0; pos--)
+		{
+			// The comment must end with the file
+			if(tail.getInt(pos) == EOCD_SIGNATURE
+				&& pos + EOCD_MIN_SIZE + Short.toUnsignedInt(tail.getShort(pos + 20)) == tail.limit())
+			{
+				return pos;
+			}
+		}
+		throw new ZipException("End of central directory not found");
+	}
+	
+	private static int[] readCentralDirectory(final ByteBuffer cen, final int entries) throws ZipException
+	{
+		// (name hash, crc) pairs
+		final long[] pairs = new long[entries];
+		int count = 0;
+		int pos = 0;
+		for(int i = 0; i < entries; i++)
+		{
+			if(cen.getInt(pos) != CEN_SIGNATURE)
+			{
+				throw new ZipException("Invalid central directory header at " + pos);
+			}
+			final int crc = cen.getInt(pos + 16);
+			final int nameLength = Short.toUnsignedInt(cen.getShort(pos + 28));
+			final int extraLength = Short.toUnsignedInt(cen.getShort(pos + 30));
+			final int commentLength = Short.toUnsignedInt(cen.getShort(pos + 32));
+			final int nameStart = pos + CEN_HEADER_SIZE;
+			
+			if(isClassFile(cen, nameStart, nameLength))
+			{
+				pairs[count++] = pair(nameHash(cen, nameStart, nameLength), crc);
+			}
+			pos = nameStart + nameLength + extraLength + commentLength;
+		}
+		return sortedCrcs(pairs, count);
+	}
+	
+	private static boolean isClassFile(final ByteBuffer cen, final int nameStart, final int nameLength)
+	{
+		if(nameLength <= CLASS_SUFFIX.length)
+		{
+			return false;
+		}
+		final int suffixStart = nameStart + nameLength - CLASS_SUFFIX.length;
+		for(int i = 0; i < CLASS_SUFFIX.length; i++)
+		{
+			if(cen.get(suffixStart + i) != CLASS_SUFFIX[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static int nameHash(final ByteBuffer cen, final int nameStart, final int nameLength)
+	{
+		int hash = 0;
+		for(int i = 0; i < nameLength; i++)
+		{
+			hash = 31 * hash + cen.get(nameStart + i);
+		}
+		return hash;
+	}
+	
+	static int[] readWithZipFile(final File file) throws IOException
+	{
+		try(final ZipFile zip = new ZipFile(file))
+		{
+			final long[] pairs = new long[zip.size()];
+			int count = 0;
+			for(final Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); )
+			{
+				final ZipEntry entry = entries.nextElement();
+				final byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+				// Same as for the central directory, where the names are also UTF-8 (or ASCII)
+				if(!entry.isDirectory() && isClassFile(name))
+				{
+					int hash = 0;
+					for(final byte b : name)
+					{
+						hash = 31 * hash + b;
+					}
+					pairs[count++] = pair(hash, (int)entry.getCrc());
+				}
+			}
+			return sortedCrcs(pairs, count);
+		}
+	}
+	
+	private static boolean isClassFile(final byte[] name)
+	{
+		return name.length > CLASS_SUFFIX.length
+			&& Arrays.equals(
+				name, name.length - CLASS_SUFFIX.length, name.length,
+				CLASS_SUFFIX, 0, CLASS_SUFFIX.length);
+	}
+	
+	private static long pair(final int nameHash, final int crc)
+	{
+		return ((long)nameHash << Integer.SIZE) | Integer.toUnsignedLong(crc);
+	}
+	
+	private static int[] sortedCrcs(final long[] pairs, final int count)
+	{
+		Arrays.sort(pairs, 0, count);
+		final int[] crcs = new int[count];
+		for(int i = 0; i < count; i++)
+		{
+			crcs[i] = (int)pairs[i];
+		}
+		return crcs;
+	}
+}
@@ -0,0 +1,456 @@
+package software.xdev.pmd.analysis.classpath;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+
+/**
+ * Persists the fingerprints of classpath archives (jars), so that they don't need to be opened and walked again after
+ * a restart of the IDE. The store is shared by all projects.
+ * <p>
+ * The fingerprints are appended to a file. Only the locations of the entries are kept in memory, the data is read
+ * from the file when required. Superseded entries are removed when the file is opened and more than half of it is
+ * outdated (or it contains an incompletely written entry). The file is not memory-mapped so that it can be replaced
+ * when compacting (mapped files are locked on Windows).
+ * </p>
+ * <p>
+ * The store is used by the virtual threads that fingerprint jars in advance. It therefore doesn't use monitors (which
+ * would pin them to their carrier thread during the I/O) and reads the entries outside of the lock. The file is
+ * closed when the application shuts down (or the plugin is unloaded).
+ * </p>
+ * <p>
+ * File format: <code>MAGIC, FORMAT_VERSION</code> followed by the entries:
+ * <code>keyLength (int), key (UTF-8), length (long), lastModified (long), dataEntries (int), dataLength (int),
+ * data</code>
+ * </p>
+ */
+public final class ZipFingerprintStore implements Disposable
+{
+	private static final Logger LOG = Logger.getInstance(ZipFingerprintStore.class);
+	
+	private static final int MAGIC = 0x504D445A;
+	// Increase when the format or the fingerprinting changes
+	private static final int FORMAT_VERSION = 3;
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+	private static final int ENTRY_FIXED_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES;
+	
+	public static ZipFingerprintStore getInstance()
+	{
+		return ApplicationManager.getApplication().getService(ZipFingerprintStore.class);
+	}
+	
+	private final Path file;
+	// Guards the following fields
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	private boolean opened;
+	private boolean incompleteEntryRead;
+	// Length of the file without an incompletely written entry at the end; appended entries are written there
+	private long validLength;
+	// Locations of the latest entry of each key inside the file
+	private final Map<String, EntryLocation> locations = new HashMap<>();
+	@Nullable
+	private FileChannel channel;
+	
+	public ZipFingerprintStore()
+	{
+		this(Path.of(PathManager.getSystemPath(), "pmd-x", "classpath-fingerprints.bin"));
+	}
+	
+	ZipFingerprintStore(final Path file)
+	{
+		this.file = file;
+	}
+	
+	@Nullable
+	public Fingerprint get(final String key)
+	{
+		final EntryLocation location;
+		final FileChannel fileChannel;
+		this.lock.lock();
+		try
+		{
+			this.openIfRequired();
+			location = this.locations.get(key);
+			if(location == null)
+			{
+				return null;
+			}
+			fileChannel = this.channel();
+		}
+		catch(final IOException ex)
+		{
+			LOG.warn("Failed to open classpath fingerprints in " + this.file, ex);
+			return null;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+		
+		try
+		{
+			// Positional reads don't interfere with concurrent reads or appends
+			return readFingerprint(fileChannel, location);
+		}
+		catch(final IOException | RuntimeException ex)
+		{
+			LOG.warn("Failed to read classpath fingerprint of " + key, ex);
+			this.lock.lock();
+			try
+			{
+				this.locations.remove(key, location);
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+			return null;
+		}
+	}
+	
+	public void put(final String key, final Fingerprint fingerprint)
+	{
+		final ByteBuffer encoded = encode(key, fingerprint);
+		this.lock.lock();
+		try
+		{
+			this.openIfRequired();
+			try
+			{
+				final FileChannel fileChannel = this.channel();
+				if(this.validLength < HEADER_BYTES)
+				{
+					fileChannel.truncate(0);
+					writeFully(fileChannel, ByteBuffer.allocate(HEADER_BYTES)
+						.putInt(MAGIC)
+						.putInt(FORMAT_VERSION)
+						.flip(), 0);
+					this.validLength = HEADER_BYTES;
+				}
+				else if(fileChannel.size() > this.validLength)
+				{
+					// Entries that are appended after an incomplete entry could never be read
+					fileChannel.truncate(this.validLength);
+				}
+				
+				final int size = encoded.remaining();
+				writeFully(fileChannel, encoded, this.validLength);
+				this.locations.put(key, new EntryLocation(this.validLength, size));
+				this.validLength += size;
+			}
+			catch(final IOException ex)
+			{
+				LOG.warn("Failed to persist classpath fingerprint of " + key, ex);
+			}
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private FileChannel channel() throws IOException
+	{
+		// Also closed when a thread is interrupted during I/O
+		if(this.channel == null || !this.channel.isOpen())
+		{
+			this.channel = FileChannel.open(
+				this.file,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		}
+		return this.channel;
+	}
+	
+	@Override
+	public void dispose()
+	{
+		this.lock.lock();
+		try
+		{
+			if(this.channel != null)
+			{
+				this.channel.close();
+				this.channel = null;
+			}
+		}
+		catch(final IOException ex)
+		{
+			LOG.warn("Failed to close " + this.file, ex);
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+	
+	private void openIfRequired()
+	{
+		if(this.opened)
+		{
+			return;
+		}
+		this.opened = true;
+		
+		try
+		{
+			Files.createDirectories(this.file.getParent());
+			if(!Files.exists(this.file))
+			{
+				return;
+			}
+			
+			this.readLocations();
+			if(this.validLength > 0
+				&& (this.incompleteEntryRead || this.validLength > 2L * this.liveBytes() + HEADER_BYTES)
+				&& this.compact())
+			{
+				this.readLocations();
+			}
+		}
+		catch(final IOException | RuntimeException ex)
+		{
+			LOG.warn("Failed to read classpath fingerprints from " + this.file + ", discarding them", ex);
+			this.locations.clear();
+			this.validLength = 0;
+			this.deleteFile();
+		}
+	}
+	
+	private void readLocations() throws IOException
+	{
+		this.locations.clear();
+		this.incompleteEntryRead = false;
+		this.validLength = 0;
+		try(final FileChannel fileChannel = FileChannel.open(this.file, StandardOpenOption.READ))
+		{
+			final long fileSize = fileChannel.size();
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			if(fileSize < HEADER_BYTES
+				|| !readFully(fileChannel, header, 0)
+				|| header.getInt(0) != MAGIC
+				|| header.getInt(Integer.BYTES) != FORMAT_VERSION)
+			{
+				LOG.info("Classpath fingerprints in " + this.file + " have an incompatible format, discarding them");
+				this.deleteFile();
+				return;
+			}
+			
+			long offset = HEADER_BYTES;
+			final ByteBuffer intBuffer = ByteBuffer.allocate(Integer.BYTES);
+			while(offset < fileSize)
+			{
+				final int size = entrySize(fileChannel, offset, fileSize, intBuffer);
+				if(size < 0)
+				{
+					// Incompletely written (e.g. the IDE was killed) -> ignore the rest (removed when compacting)
+					this.incompleteEntryRead = true;
+					break;
+				}
+				this.locations.put(readKey(fileChannel, offset, intBuffer.getInt(0)), new EntryLocation(offset, size));
+				offset += size;
+			}
+			this.validLength = offset;
+		}
+	}
+	
+	private long liveBytes()
+	{
+		return this.locations.values()
+			.stream()
+			.mapToLong(EntryLocation::size)
+			.sum();
+	}
+	
+	/**
+	 * @return if the file was compacted
+	 */
+	private boolean compact() throws IOException
+	{
+		final Path tempFile = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+		try(final FileChannel source = FileChannel.open(this.file, StandardOpenOption.READ);
+			final FileChannel target = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			target.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip());
+			for(final EntryLocation location : this.locations.values())
+			{
+				final ByteBuffer entry = ByteBuffer.allocate(location.size());
+				if(!readFully(source, entry, location.offset()))
+				{
+					throw new EOFException("Entry at " + location.offset() + " is incomplete");
+				}
+				entry.flip();
+				while(entry.hasRemaining())
+				{
+					target.write(entry);
+				}
+			}
+		}
+		try
+		{
+			// The file is closed (and not mapped) at this point
+			Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(final IOException ex)
+		{
+			// e.g. when the file is opened by another process -> compact the next time
+			// Appending truncates the incomplete entry (if present) so that the appended entries stay readable
+			LOG.debug("Failed to replace " + this.file + " with compacted version", ex);
+			Files.deleteIfExists(tempFile);
+			return false;
+		}
+		LOG.debug("Compacted classpath fingerprints in " + this.file);
+		return true;
+	}
+	
+	private void deleteFile()
+	{
+		try
+		{
+			Files.deleteIfExists(this.file);
+		}
+		catch(final IOException ex)
+		{
+			LOG.warn("Failed to delete " + this.file, ex);
+		}
+	}
+	
+	private static ByteBuffer encode(final String key, final Fingerprint fingerprint)
+	{
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final int dataLength = fingerprint.checksumUpdateData().length;
+		return ByteBuffer.allocate(Integer.BYTES + keyBytes.length + ENTRY_FIXED_BYTES + dataLength)
+			.putInt(keyBytes.length)
+			.put(keyBytes)
+			.putLong(fingerprint.length())
+			.putLong(fingerprint.lastModified())
+			.putInt(fingerprint.checksumUpdateEntries())
+			.putInt(dataLength)
+			.put(fingerprint.checksumUpdateData())
+			.flip();
+	}
+	
+	/**
+	 * @param intBuffer contains the key length of the entry afterwards
+	 * @return the size of the entry at the offset or <code>-1</code> if it's incomplete
+	 */
+	private static int entrySize(
+		final FileChannel fileChannel,
+		final long offset,
+		final long fileSize,
+		final ByteBuffer intBuffer) throws IOException
+	{
+		if(offset + Integer.BYTES > fileSize || !readFully(fileChannel, intBuffer.clear(), offset))
+		{
+			return -1;
+		}
+		final int keyLength = intBuffer.getInt(0);
+		final long dataLengthOffset = offset + Integer.BYTES + keyLength + 2 * Long.BYTES + Integer.BYTES;
+		final ByteBuffer dataLengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+		if(keyLength < 0
+			|| dataLengthOffset + Integer.BYTES > fileSize
+			|| !readFully(fileChannel, dataLengthBuffer, dataLengthOffset))
+		{
+			return -1;
+		}
+		final int dataLength = dataLengthBuffer.getInt(0);
+		final int size = Integer.BYTES + keyLength + ENTRY_FIXED_BYTES + dataLength;
+		return dataLength < 0 || offset + size > fileSize ? -1 : size;
+	}
+	
+	private static String readKey(final FileChannel fileChannel, final long offset, final int keyLength)
+		throws IOException
+	{
+		final ByteBuffer keyBuffer = ByteBuffer.allocate(keyLength);
+		if(!readFully(fileChannel, keyBuffer, offset + Integer.BYTES))
+		{
+			throw new EOFException("Key at " + offset + " is incomplete");
+		}
+		return new String(keyBuffer.array(), StandardCharsets.UTF_8);
+	}
+	
+	private static Fingerprint readFingerprint(final FileChannel fileChannel, final EntryLocation location)
+		throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(location.size());
+		if(!readFully(fileChannel, buffer, location.offset()))
+		{
+			throw new EOFException("Entry at " + location.offset() + " is incomplete");
+		}
+		
+		int position = Integer.BYTES + buffer.getInt(0);
+		final long length = buffer.getLong(position);
+		position += Long.BYTES;
+		final long lastModified = buffer.getLong(position);
+		position += Long.BYTES;
+		final int checksumUpdateEntries = buffer.getInt(position);
+		position += Integer.BYTES;
+		final byte[] data = new byte[buffer.getInt(position)];
+		position += Integer.BYTES;
+		buffer.get(position, data);
+		return new Fingerprint(length, lastModified, data, checksumUpdateEntries);
+	}
+	
+	/**
+	 * @return <code>false</code> if the end of the file was reached before the buffer was filled
+	 */
+	private static boolean readFully(final FileChannel fileChannel, final ByteBuffer buffer, final long position)
+		throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			if(fileChannel.read(buffer, position + buffer.position()) < 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static void writeFully(final FileChannel fileChannel, final ByteBuffer buffer, final long position)
+		throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			fileChannel.write(buffer, position + buffer.position());
+		}
+	}
+	
+	record EntryLocation(
+		long offset,
+		int size)
+	{
+	}
+	
+	
+	public record Fingerprint(
+		long length,
+		long lastModified,
+		byte[] checksumUpdateData,
+		int checksumUpdateEntries)
+	{
+	}
+}
@@ -0,0 +1,93 @@
+package software.xdev.pmd.analysis.scheduling;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+
+import software.xdev.pmd.config.PluginConfiguration;
+import software.xdev.pmd.config.PluginConfigurationManager;
+
+
+/**
+ * Determines how many threads should be used for analyzing files according to the configured
+ * {@link software.xdev.pmd.model.threads.ThreadPolicy}.
+ * <p>
+ * In automatic mode a thread is only added when there is enough work for it: The expected duration of the analysis
+ * is estimated by using the average time that was previously required to analyze a file.
+ * </p>
+ */
+public class AnalysisThreadPlanner
+{
+	private static final Logger LOG = Logger.getInstance(AnalysisThreadPlanner.class);
+	
+	private static final double DEFAULT_FILE_COST_MS = 10;
+	// A thread should at least have this much work, otherwise starting it is not worth it
+	private static final long MIN_WORK_PER_THREAD_MS = 1_000;
+	// Weight of the latest measurement in the moving average
+	private static final double EWMA_ALPHA = 0.3;
+	private static final int PERCENT = 100;
+	
+	private final Project project;
+	private final AtomicReference<Double> averageFileCostMs = new AtomicReference<>(DEFAULT_FILE_COST_MS);
+	
+	public AnalysisThreadPlanner(@NotNull final Project project)
+	{
+		this.project = project;
+	}
+	
+	/**
+	 * @return the number of threads (at least 1) that should be used for analyzing the given number of files
+	 */
+	public int threadsFor(final int fileCount)
+	{
+		final PluginConfiguration pluginConfiguration =
+			this.project.getService(PluginConfigurationManager.class).getCurrent();
+		final int cores = maxThreads();
+		
+		return switch(pluginConfiguration.threadPolicy())
+		{
+			// More threads than cores are not provided by the BulkAnalysisExecutor
+			case FIXED -> Math.clamp(pluginConfiguration.fixedThreadCount(), 1, maxThreads());
+			case SHARE_OF_CORES -> Math.max(1, cores * pluginConfiguration.coreSharePercent() / PERCENT);
+			case AUTO ->
+			{
+				final long expectedWorkMs = Math.round(fileCount * this.averageFileCostMs.get());
+				// Leave one core for the IDE
+				yield Math.clamp(
+					(expectedWorkMs + MIN_WORK_PER_THREAD_MS - 1) / MIN_WORK_PER_THREAD_MS,
+					1,
+					Math.max(1, cores - 1));
+			}
+		};
+	}
+	
+	/**
+	 * @return the maximum number of threads that can be used (one per core)
+	 */
+	public static int maxThreads()
+	{
+		return Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Records how long (summed up over all threads) the analysis of the given number of files took.
+	 */
+	public void recordCost(final int fileCount, final long durationMs)
+	{
+		if(fileCount <= 0)
+		{
+			return;
+		}
+		
+		final double fileCostMs = (double)durationMs / fileCount;
+		final double average = this.averageFileCostMs.updateAndGet(old -> old + EWMA_ALPHA * (fileCostMs - old));
+		if(LOG.isDebugEnabled())
+		{
+			LOG.debug("Analysis of " + fileCount + " files took " + durationMs + "ms [avg per file="
+				+ Math.round(average) + "ms]");
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package software.xdev.pmd.analysis.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+
+
+/**
+ * Executes the tasks of bulk analyses (e.g. "Run Analysis") with a single budget of worker threads.
+ * <p>
+ * Previously every module was analyzed in the common ForkJoinPool and PMD started its own thread pool per module,
+ * resulting in (number of cores &times; number of modules) threads that competed with the IDE. All tasks now share
+ * the budget of this executor and are analyzed single threaded by PMD.
+ * </p>
+ * <p>
+ * The budget of each run is planned by {@link AnalysisThreadPlanner} (see {@link #planFor(int)}) and only limits the
+ * tasks of that run. The executor itself is never resized, so that concurrent runs don't change each other's budget.
+ * It's only limited by the number of cores, so that concurrent runs don't exceed them in total.
+ * </p>
+ */
+public class BulkAnalysisExecutor implements Disposable
+{
+	private static final Logger LOG = Logger.getInstance(BulkAnalysisExecutor.class);
+	
+	private static final long WAIT_POLL_MS = 100;
+	private static final long IDLE_THREAD_KEEP_ALIVE_MS = 30_000;
+	private static final int PERCENT = 100;
+	
+	private final Project project;
+	
+	private final ThreadPoolExecutor executor;
+	
+	public BulkAnalysisExecutor(@NotNull final Project project)
+	{
+		this.project = project;
+		final int maxThreads = AnalysisThreadPlanner.maxThreads();
+		this.executor = new ThreadPoolExecutor(
+			maxThreads,
+			maxThreads,
+			IDLE_THREAD_KEEP_ALIVE_MS,
+			TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(),
+			Thread.ofPlatform()
+				.name("PMD-BulkAnalysis-", 0)
+				.daemon()
+				.factory());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * Plans the thread budget for a run that analyzes the given number of files.
+	 *
+	 * @return the budget that is shared by all {@link #executeAll(List, int, RunBudget, ProgressIndicator)} calls of
+	 * the run
+	 */
+	public RunBudget planFor(final int fileCount)
+	{
+		final int threadBudget = this.project.getService(AnalysisThreadPlanner.class).threadsFor(fileCount);
+		LOG.debug("Planned " + threadBudget + " threads for the bulk analysis of " + fileCount + " files");
+		return new RunBudget(threadBudget);
+	}
+	
+	/**
+	 * Executes the tasks and waits until all of them are finished.
+	 * <p>
+	 * The tasks usually use resources of the caller (e.g. the analysis cache) that are released afterwards. Therefore
+	 * this method never returns before all tasks are finished - even if the progress was cancelled or a task failed.
+	 * </p>
+	 *
+	 * @param fileCount The number of files that are analyzed by the tasks
+	 * @param budget    Limits how many tasks of the run are executed concurrently; a task is only submitted once the
+	 *                  budget allows it
+	 * @throws ProcessCanceledException if the progress was cancelled; tasks that were not yet started are skipped
+	 */
+	public void executeAll(
+		final List<Runnable> tasks,
+		final int fileCount,
+		final RunBudget budget,
+		final ProgressIndicator progressIndicator)
+	{
+		final AtomicLong totalDurationMs = new AtomicLong();
+		final AtomicBoolean aborted = new AtomicBoolean();
+		
+		final List<Future<?>> futures = new ArrayList<>(tasks.size());
+		try
+		{
+			for(final Runnable task : tasks)
+			{
+				budget.acquire(progressIndicator);
+				futures.add(this.executor.submit(() -> {
+					try
+					{
+						if(aborted.get() || progressIndicator.isCanceled())
+						{
+							return;
+						}
+						
+						final long startMs = System.currentTimeMillis();
+						task.run();
+						totalDurationMs.addAndGet(System.currentTimeMillis() - startMs);
+					}
+					finally
+					{
+						budget.release();
+					}
+				}));
+			}
+			
+			for(final Future<?> future : futures)
+			{
+				this.await(future, progressIndicator);
+			}
+		}
+		catch(final RuntimeException ex)
+		{
+			// Skip the tasks that were not yet started and wait for the running ones
+			aborted.set(true);
+			futures.forEach(BulkAnalysisExecutor::awaitTermination);
+			throw ex;
+		}
+		
+		this.project.getService(AnalysisThreadPlanner.class).recordCost(fileCount, totalDurationMs.get());
+		
+		if(LOG.isDebugEnabled())
+		{
+			LOG.debug("Executed " + tasks.size() + " bulk analysis tasks [" + this + "]");
+		}
+	}
+	
+	private void await(final Future<?> future, final ProgressIndicator progressIndicator)
+	{
+		while(true)
+		{
+			try
+			{
+				future.get(WAIT_POLL_MS, TimeUnit.MILLISECONDS);
+				return;
+			}
+			catch(final TimeoutException ignored)
+			{
+				progressIndicator.checkCanceled();
+			}
+			catch(final InterruptedException iex)
+			{
+				Thread.currentThread().interrupt();
+				throw new ProcessCanceledException(iex);
+			}
+			catch(final ExecutionException ex)
+			{
+				if(ex.getCause() instanceof final RuntimeException rex)
+				{
+					throw rex;
+				}
+				throw new IllegalStateException("Bulk analysis task failed", ex.getCause());
+			}
+		}
+	}
+	
+	/**
+	 * Waits until the task is finished, ignoring its result and interruptions.
+	 */
+	private static void awaitTermination(final Future<?> future)
+	{
+		boolean interrupted = false;
+		try
+		{
+			while(true)
+			{
+				try
+				{
+					future.get();
+					return;
+				}
+				catch(final InterruptedException iex)
+				{
+					interrupted = true;
+				}
+				catch(final ExecutionException | CancellationException ex)
+				{
+					// Only the failure that aborted the execution is rethrown
+					return;
+				}
+			}
+		}
+		finally
+		{
+			if(interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * @return the maximum number of bulk analysis tasks that are executed concurrently (by all runs)
+	 */
+	public int getThreadBudget()
+	{
+		return this.executor.getCorePoolSize();
+	}
+	
+	/**
+	 * @return the number of tasks that are waiting for a free thread
+	 */
+	public int getQueueDepth()
+	{
+		return this.executor.getQueue().size();
+	}
+	
+	public int getRunningTasks()
+	{
+		return this.executor.getActiveCount();
+	}
+	
+	/**
+	 * @return the used share (0-1) of the thread budget
+	 */
+	public double getUtilization()
+	{
+		return (double)this.getRunningTasks() / this.getThreadBudget();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "budget=" + this.getThreadBudget()
+			+ ", queued=" + this.getQueueDepth()
+			+ ", running=" + this.getRunningTasks()
+			+ ", utilization=" + Math.round(this.getUtilization() * PERCENT) + "%";
+	}
+	
+	@Override
+	public void dispose()
+	{
+		this.executor.shutdownNow();
+	}
+	
+	/**
+	 * The number of threads a run (e.g. "Run Analysis" over multiple modules) may use at the same time.
+	 */
+	public static final class RunBudget
+	{
+		private final int threads;
+		private final Semaphore permits;
+		
+		RunBudget(final int threads)
+		{
+			this.threads = threads;
+			this.permits = new Semaphore(threads);
+		}
+		
+		public int getThreads()
+		{
+			return this.threads;
+		}
+		
+		void acquire(final ProgressIndicator progressIndicator)
+		{
+			try
+			{
+				while(!this.permits.tryAcquire(WAIT_POLL_MS, TimeUnit.MILLISECONDS))
+				{
+					progressIndicator.checkCanceled();
+				}
+			}
+			catch(final InterruptedException iex)
+			{
+				Thread.currentThread().interrupt();
+				throw new ProcessCanceledException(iex);
+			}
+		}
+		
+		void release()
+		{
+			this.permits.release();
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package software.xdev.pmd.analysis.scheduling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.vfs.VirtualFile;
+
+import software.xdev.pmd.analysis.PMDAnalysisResult;
+import software.xdev.pmd.external.org.springframework.util.ConcurrentReferenceHashMap;
+
+
+/**
+ * Schedules the analyses that are triggered by the editor (e.g. while typing).
+ * <p>
+ * Per file at most one analysis is running and one is pending. When a new request arrives while another one is
+ * pending, the pending one is dropped (its caller receives no result) as its result would be outdated anyway.
+ * </p>
+ * <p>
+ * Before an analysis is started it's debounced depending on how long the analysis of the file usually takes: Cheap
+ * files are analyzed immediately while expensive ones wait a bit longer for the user to stop typing.
+ * </p>
+ */
+public class EditorAnalysisScheduler
+{
+	private static final Logger LOG = Logger.getInstance(EditorAnalysisScheduler.class);
+	
+	private static final long MAX_DEBOUNCE_MS = 750;
+	private static final int DEBOUNCE_DIVISOR = 4;
+	private static final long WAIT_POLL_MS = 25;
+	// Weight of the latest measurement in the moving average
+	private static final double EWMA_ALPHA = 0.3;
+	
+	private final Map<VirtualFile, FileSlot> slots = new ConcurrentHashMap<>();
+	private final Map<VirtualFile, Double> averageDurationMs = new ConcurrentReferenceHashMap<>();
+	
+	/**
+	 * Executes the analysis once all previous analyses of the file are finished.
+	 *
+	 * @param cachedResult Supplies the result if it's already known, e.g. because a previous analysis produced it
+	 *                     while waiting. Checked before the analysis is executed.
+	 * @return the result or <code>null</code> if the request was superseded by a newer one
+	 * @throws ProcessCanceledException if the progress was cancelled
+	 */
+	@Nullable
+	public PMDAnalysisResult schedule(
+		@NotNull final VirtualFile file,
+		@NotNull final Supplier<PMDAnalysisResult> cachedResult,
+		@NotNull final Supplier<PMDAnalysisResult> analysis)
+	{
+		final FileSlot slot = this.slots.compute(file, (f, existing) -> {
+			final FileSlot s = existing != null ? existing : new FileSlot();
+			s.users++;
+			return s;
+		});
+		try
+		{
+			return this.scheduleInSlot(file, slot, cachedResult, analysis);
+		}
+		finally
+		{
+			// Retire slot when idle
+			this.slots.computeIfPresent(file, (f, s) -> --s.users == 0 ? null : s);
+		}
+	}
+	
+	private PMDAnalysisResult scheduleInSlot(
+		final VirtualFile file,
+		final FileSlot slot,
+		final Supplier<PMDAnalysisResult> cachedResult,
+		final Supplier<PMDAnalysisResult> analysis)
+	{
+		final Request request = new Request(System.currentTimeMillis() + this.debounceMsFor(file));
+		
+		slot.lock.lock();
+		try
+		{
+			if(slot.pending != null)
+			{
+				slot.pending.superseded.set(true);
+			}
+			slot.pending = request;
+			slot.changed.signalAll();
+			
+			while(!request.superseded.get()
+				&& (slot.running || System.currentTimeMillis() < request.notBeforeMs))
+			{
+				ProgressManager.checkCanceled();
+				slot.changed.await(WAIT_POLL_MS, TimeUnit.MILLISECONDS);
+			}
+			if(request.superseded.get())
+			{
+				// The newer request removes this one from pending
+				return null;
+			}
+			
+			slot.pending = null;
+			slot.running = true;
+		}
+		catch(final InterruptedException iex)
+		{
+			Thread.currentThread().interrupt();
+			if(slot.pending == request)
+			{
+				slot.pending = null;
+			}
+			throw new ProcessCanceledException(iex);
+		}
+		catch(final ProcessCanceledException pce)
+		{
+			if(slot.pending == request)
+			{
+				slot.pending = null;
+			}
+			throw pce;
+		}
+		finally
+		{
+			slot.lock.unlock();
+		}
+		
+		try
+		{
+			final PMDAnalysisResult resultOfPrevious = cachedResult.get();
+			if(resultOfPrevious != null)
+			{
+				// Not recorded, it would lower the average although nothing was analyzed
+				return resultOfPrevious;
+			}
+			
+			final long startMs = System.currentTimeMillis();
+			final PMDAnalysisResult result = analysis.get();
+			this.recordDuration(file, System.currentTimeMillis() - startMs);
+			return result;
+		}
+		finally
+		{
+			slot.lock.lock();
+			try
+			{
+				slot.running = false;
+				slot.changed.signalAll();
+			}
+			finally
+			{
+				slot.lock.unlock();
+			}
+		}
+	}
+	
+	private long debounceMsFor(final VirtualFile file)
+	{
+		final Double average = this.averageDurationMs.get(file);
+		if(average == null)
+		{
+			return 0;
+		}
+		return Math.clamp(Math.round(average / DEBOUNCE_DIVISOR), 0, MAX_DEBOUNCE_MS);
+	}
+	
+	private void recordDuration(final VirtualFile file, final long durationMs)
+	{
+		final Double average = this.averageDurationMs.merge(
+			file,
+			(double)durationMs,
+			(old, current) -> old + EWMA_ALPHA * (current - old));
+		if(LOG.isDebugEnabled())
+		{
+			LOG.debug("Analysis of " + file.getName() + " took " + durationMs + "ms [avg=" + Math.round(average)
+				+ "ms]");
+		}
+	}
+	
+	static final class FileSlot
+	{
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition changed = this.lock.newCondition();
+		
+		// Only modified inside Map#compute
+		private int users;
+		
+		private boolean running;
+		private Request pending;
+	}
+	
+	
+	static final class Request
+	{
+		private final long notBeforeMs;
+		private final AtomicBoolean superseded = new AtomicBoolean();
+		
+		Request(final long notBeforeMs)
+		{
+			this.notBeforeMs = notBeforeMs;
+		}
+	}
+}
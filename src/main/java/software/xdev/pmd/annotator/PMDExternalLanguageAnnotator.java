@@ -1,8 +1,11 @@
 package software.xdev.pmd.annotator;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.function.Supplier;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -32,9 +35,12 @@ import net.sourceforge.pmd.reporting.Report;
 import net.sourceforge.pmd.reporting.RuleViolation;
 import software.xdev.pmd.analysis.PMDAnalysisResult;
 import software.xdev.pmd.analysis.PMDAnalyzer;
+import software.xdev.pmd.analysis.cache.FileAnalysisResultCache;
+import software.xdev.pmd.analysis.scheduling.EditorAnalysisScheduler;
 import software.xdev.pmd.config.ConfigurationLocationSource;
 import software.xdev.pmd.currentfile.CurrentFileAnalysisManager;
 import software.xdev.pmd.markdown.RuleDescriptionDocMarkdownToHtmlService;
+import software.xdev.pmd.model.config.ConfigurationLocation;
 import software.xdev.pmd.util.Notifications;
 
 
@@ -50,7 +56,9 @@ public class PMDExternalLanguageAnnotator
 		@NotNull final Editor editor,
 		final boolean hasErrors)
 	{
-		return new FileInfo(psiFile, editor.getDocument());
+		final Document document = editor.getDocument();
+		// Taken together (read access is held here) so that a cached result always matches the analyzed contents
+		return new FileInfo(psiFile, document, document.getModificationStamp(), document.getImmutableCharSequence());
 	}
 	
 	@Nullable
@@ -71,9 +79,14 @@ public class PMDExternalLanguageAnnotator
 		try
 		{
 			final PMDAnalysisResult analysisResult = this.analyze(
-				file,
+				info,
 				project,
 				ProgressManager.getInstance().getProgressIndicator());
+			if(analysisResult == null)
+			{
+				// Superseded by a newer request that will annotate the file
+				return null;
+			}
 			
 			project.getService(CurrentFileAnalysisManager.class)
 				.reportAnalysisResult(file, this, analysisResult);
@@ -101,21 +114,50 @@ public class PMDExternalLanguageAnnotator
 		}
 	}
 	
+	@Nullable
 	private PMDAnalysisResult analyze(
-		final PsiFile file,
+		final FileInfo info,
 		final Project project,
 		final ProgressIndicator progress)
 	{
-		final PMDAnalyzer analyzer = project.getService(PMDAnalyzer.class);
-		
+		final PsiFile file = info.file();
 		final Module module = ModuleUtilCore.findModuleForFile(file);
-		return analyzer.analyze(
+		final SortedSet<ConfigurationLocation> configurationLocations =
+			project.getService(ConfigurationLocationSource.class).getConfigurationLocations(module);
+		
+		final FileAnalysisResultCache resultCache = project.getService(FileAnalysisResultCache.class);
+		final FileAnalysisResultCache.Key cacheKey = resultCache.keyFor(
+			file,
+			info.documentModificationStamp(),
+			configurationLocations);
+		final Supplier<PMDAnalysisResult> analysis = () -> project.getService(PMDAnalyzer.class).analyze(
 			Optional.ofNullable(module),
 			Set.of(file),
+			Map.of(file, info.contents()),
 			true,
-			project.getService(ConfigurationLocationSource.class).getConfigurationLocations(module),
+			configurationLocations,
 			progress
 		);
+		if(cacheKey == null)
+		{
+			return analysis.get();
+		}
+		
+		final PMDAnalysisResult cachedResult = resultCache.get(cacheKey);
+		if(cachedResult != null)
+		{
+			return cachedResult;
+		}
+		
+		return project.getService(EditorAnalysisScheduler.class).schedule(
+			cacheKey.file(),
+			// A previous analysis might have already produced the result while waiting
+			() -> resultCache.get(cacheKey),
+			() -> {
+				final PMDAnalysisResult result = analysis.get();
+				resultCache.put(cacheKey, result);
+				return result;
+			});
 	}
 	
 	@Override
@@ -230,7 +272,10 @@ public class PMDExternalLanguageAnnotator
 		};
 	}
 	
-	public record FileInfo(PsiFile file, Document document)
+	/**
+	 * @param contents Snapshot of the document at the time of the modification stamp; this is what is analyzed
+	 */
+	public record FileInfo(PsiFile file, Document document, long documentModificationStamp, CharSequence contents)
 	{
 	}
 	
@@ -13,6 +13,7 @@ import org.jetbrains.annotations.Nullable;
 
 import software.xdev.pmd.model.config.ConfigurationLocation;
 import software.xdev.pmd.model.scope.ScanScope;
+import software.xdev.pmd.model.threads.ThreadPolicy;
 
 
 /**
@@ -20,9 +21,12 @@ import software.xdev.pmd.model.scope.ScanScope;
  * a simple DTO without any business logic.
  */
 public record PluginConfiguration(
-	boolean useSingleThread,
+	ThreadPolicy threadPolicy,
+	int fixedThreadCount,
+	int coreSharePercent,
 	boolean showSuppressedWarnings,
 	boolean useCacheFile,
+	int bulkAnalysisBatchSize,
 	ScanScope scanScope,
 	SortedSet<ConfigurationLocation> locations,
 	SortedSet<String> activeLocationIds,
@@ -15,21 +15,33 @@ import software.xdev.pmd.model.config.ConfigurationLocation;
 import software.xdev.pmd.model.config.ConfigurationLocationFactory;
 import software.xdev.pmd.model.config.bundled.BundledConfig;
 import software.xdev.pmd.model.scope.ScanScope;
+import software.xdev.pmd.model.threads.ThreadPolicy;
 
 
 public final class PluginConfigurationBuilder
 {
-	private boolean useSingleThread;
+	public static final int DEFAULT_FIXED_THREAD_COUNT = 4;
+	public static final int DEFAULT_CORE_SHARE_PERCENT = 50;
+	public static final int DEFAULT_BULK_ANALYSIS_BATCH_SIZE = 1000;
+	
+	private ThreadPolicy threadPolicy;
+	private int fixedThreadCount;
+	private int coreSharePercent;
 	private boolean showSuppressedWarnings;
 	private boolean useCacheFile;
+	private int bulkAnalysisBatchSize;
 	private ScanScope scanScope;
 	private SortedSet<ConfigurationLocation> locations;
 	private SortedSet<String> activeLocationIds;
 	
 	public PluginConfigurationBuilder(final Project project)
 	{
+		this.threadPolicy = ThreadPolicy.getDefaultValue();
+		this.fixedThreadCount = DEFAULT_FIXED_THREAD_COUNT;
+		this.coreSharePercent = DEFAULT_CORE_SHARE_PERCENT;
 		this.showSuppressedWarnings = true;
 		this.useCacheFile = true;
+		this.bulkAnalysisBatchSize = DEFAULT_BULK_ANALYSIS_BATCH_SIZE;
 		this.scanScope = ScanScope.getDefaultValue();
 		this.locations = BundledConfig.getAllBundledConfigs()
 			.stream()
@@ -40,9 +52,12 @@ public final class PluginConfigurationBuilder
 	
 	public PluginConfigurationBuilder(final PluginConfiguration copyFrom)
 	{
-		this.useSingleThread = copyFrom.useSingleThread();
+		this.threadPolicy = copyFrom.threadPolicy();
+		this.fixedThreadCount = copyFrom.fixedThreadCount();
+		this.coreSharePercent = copyFrom.coreSharePercent();
 		this.showSuppressedWarnings = copyFrom.showSuppressedWarnings();
 		this.useCacheFile = copyFrom.useCacheFile();
+		this.bulkAnalysisBatchSize = copyFrom.bulkAnalysisBatchSize();
 		this.scanScope = copyFrom.scanScope();
 		this.locations = copyFrom.locations();
 		this.activeLocationIds = copyFrom.activeLocationIds();
@@ -53,11 +68,27 @@ public final class PluginConfigurationBuilder
 		return new PluginConfigurationBuilder(source).build();
 	}
 	
-	public PluginConfigurationBuilder withUseSingleThread(@Nullable final Boolean useSingleThread)
+	public PluginConfigurationBuilder withThreadPolicy(@NotNull final ThreadPolicy newThreadPolicy)
+	{
+		this.threadPolicy = newThreadPolicy;
+		return this;
+	}
+	
+	public PluginConfigurationBuilder withFixedThreadCount(@Nullable final Integer fixedThreadCount)
 	{
-		if(useSingleThread != null)
+		if(fixedThreadCount != null && fixedThreadCount > 0)
 		{
-			this.useSingleThread = useSingleThread;
+			this.fixedThreadCount = fixedThreadCount;
+		}
+		return this;
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public PluginConfigurationBuilder withCoreSharePercent(@Nullable final Integer coreSharePercent)
+	{
+		if(coreSharePercent != null && coreSharePercent > 0 && coreSharePercent <= 100)
+		{
+			this.coreSharePercent = coreSharePercent;
 		}
 		return this;
 	}
@@ -80,6 +111,15 @@ public final class PluginConfigurationBuilder
 		return this;
 	}
 	
+	public PluginConfigurationBuilder withBulkAnalysisBatchSize(@Nullable final Integer bulkAnalysisBatchSize)
+	{
+		if(bulkAnalysisBatchSize != null && bulkAnalysisBatchSize > 0)
+		{
+			this.bulkAnalysisBatchSize = bulkAnalysisBatchSize;
+		}
+		return this;
+	}
+	
 	public PluginConfigurationBuilder withActiveLocationIds(@NotNull final SortedSet<String> newActiveLocationIds)
 	{
 		this.activeLocationIds = newActiveLocationIds;
@@ -101,9 +141,12 @@ public final class PluginConfigurationBuilder
 	public PluginConfiguration build()
 	{
 		return new PluginConfiguration(
-			this.useSingleThread,
+			this.threadPolicy,
+			this.fixedThreadCount,
+			this.coreSharePercent,
 			this.showSuppressedWarnings,
 			this.useCacheFile,
+			this.bulkAnalysisBatchSize,
 			this.scanScope,
 			Collections.unmodifiableSortedSet(Objects.requireNonNullElseGet(this.locations, TreeSet::new)),
 			this.activeLocationIds != null
@@ -26,6 +26,7 @@ import software.xdev.pmd.model.config.ConfigurationLocationFactory;
 import software.xdev.pmd.model.config.ConfigurationType;
 import software.xdev.pmd.model.config.bundled.BundledConfig;
 import software.xdev.pmd.model.scope.ScanScope;
+import software.xdev.pmd.model.threads.ThreadPolicy;
 
 
 public class ProjectSettingsState
@@ -35,13 +36,24 @@ public class ProjectSettingsState
 	@Attribute
 	String serialisationVersion;
 	
+	/**
+	 * Replaced by {@link #threadPolicy}; only read to migrate old settings
+	 */
 	@Tag
 	Boolean useSingleThread;
 	@Tag
+	String threadPolicy;
+	@Tag
+	Integer fixedThreadCount;
+	@Tag
+	Integer coreSharePercent;
+	@Tag
 	Boolean showSuppressedWarnings;
 	@Tag
 	Boolean useCacheFile;
 	@Tag
+	Integer bulkAnalysisBatchSize;
+	@Tag
 	String scanScope;
 	@XCollection
 	List<String> activeLocationIds;
@@ -54,9 +66,12 @@ public class ProjectSettingsState
 		
 		projectSettings.serialisationVersion = "1";
 		
-		projectSettings.useSingleThread = currentConfig.useSingleThread();
+		projectSettings.threadPolicy = currentConfig.threadPolicy().name();
+		projectSettings.fixedThreadCount = currentConfig.fixedThreadCount();
+		projectSettings.coreSharePercent = currentConfig.coreSharePercent();
 		projectSettings.showSuppressedWarnings = currentConfig.showSuppressedWarnings();
 		projectSettings.useCacheFile = currentConfig.useCacheFile();
+		projectSettings.bulkAnalysisBatchSize = currentConfig.bulkAnalysisBatchSize();
 		projectSettings.scanScope = currentConfig.scanScope().name();
 		projectSettings.activeLocationIds = new ArrayList<>(currentConfig.activeLocationIds());
 		projectSettings.locations = currentConfig.locations().stream()
@@ -82,9 +97,12 @@ public class ProjectSettingsState
 		@NotNull final Project project)
 	{
 		return builder
-			.withUseSingleThread(this.useSingleThread)
+			.withThreadPolicy(this.lookupThreadPolicy())
+			.withFixedThreadCount(this.lookupFixedThreadCount())
+			.withCoreSharePercent(this.coreSharePercent)
 			.withShowSuppressedWarnings(this.showSuppressedWarnings)
 			.withUseCacheFile(this.useCacheFile)
+			.withBulkAnalysisBatchSize(this.bulkAnalysisBatchSize)
 			.withScanScope(this.lookupScanScope())
 			.withLocations(this.deserializeLocations(project))
 			.withActiveLocationIds(new TreeSet<>(requireNonNullElseGet(
@@ -116,6 +134,39 @@ public class ProjectSettingsState
 		return configurationLocations;
 	}
 	
+	private boolean isLegacySingleThread()
+	{
+		return this.threadPolicy == null && Boolean.TRUE.equals(this.useSingleThread);
+	}
+	
+	@NotNull
+	private ThreadPolicy lookupThreadPolicy()
+	{
+		if(this.isLegacySingleThread())
+		{
+			return ThreadPolicy.FIXED;
+		}
+		if(this.threadPolicy != null)
+		{
+			try
+			{
+				return ThreadPolicy.valueOf(this.threadPolicy);
+			}
+			catch(final IllegalArgumentException e)
+			{
+				// settings got messed up (manual edit?) - use default
+			}
+		}
+		return ThreadPolicy.getDefaultValue();
+	}
+	
+	@Nullable
+	private Integer lookupFixedThreadCount()
+	{
+		// "Use single thread" was enabled
+		return this.isLegacySingleThread() ? Integer.valueOf(1) : this.fixedThreadCount;
+	}
+	
 	@NotNull
 	private ScanScope lookupScanScope()
 	{
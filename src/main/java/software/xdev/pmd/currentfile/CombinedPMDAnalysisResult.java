@@ -1,5 +1,6 @@
 package software.xdev.pmd.currentfile;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -10,8 +11,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 
 import net.sourceforge.pmd.lang.document.FileId;
 import net.sourceforge.pmd.reporting.Report;
@@ -26,6 +32,7 @@ public record CombinedPMDAnalysisResult(
 	List<Report.ProcessingError> errors,
 	List<Report.ConfigurationError> configErrors,
 	Map<FileId, PsiFile> fileIdPsiFiles,
+	int analyzedFileCount,
 	Set<NoAnalysisReason> noAnalysisReasons
 )
 {
@@ -43,6 +50,7 @@ public record CombinedPMDAnalysisResult(
 		final Map<FileId, PsiFile> fileIdPsiFiles = new HashMap<>();
 		final Set<NoAnalysisReason> noAnalysisReasons = EnumSet.noneOf(NoAnalysisReason.class);
 		
+		int analyzedFileCount = 0;
 		for(final PMDAnalysisResult result : results)
 		{
 			final Report report = result.report();
@@ -57,6 +65,7 @@ public record CombinedPMDAnalysisResult(
 				.ifPresent(noAnalysisReasons::add);
 			
 			fileIdPsiFiles.putAll(result.fileIdPsiFiles());
+			analyzedFileCount += result.analyzedFileCount();
 		}
 		
 		return new CombinedPMDAnalysisResult(
@@ -65,12 +74,133 @@ public record CombinedPMDAnalysisResult(
 			Collections.unmodifiableList(processingErrors),
 			Collections.unmodifiableList(configErrors),
 			Collections.unmodifiableMap(fileIdPsiFiles),
+			analyzedFileCount,
 			noAnalysisReasons
 		);
 	}
 	
 	public boolean isEmpty()
 	{
-		return this.fileIdPsiFiles.isEmpty();
+		return this.analyzedFileCount == 0 && this.fileIdPsiFiles.isEmpty();
+	}
+	
+	/**
+	 * Collects the results of a long-running analysis.
+	 * <p>
+	 * Results are only appended, nothing is copied. Instead of the {@link PsiFile PsiFiles} only the
+	 * {@link VirtualFile VirtualFiles} are kept and the PsiFiles are looked up when required, so that they don't need
+	 * to be kept in memory for all analyzed files.
+	 * </p>
+	 * Not thread-safe.
+	 */
+	public static final class Accumulator
+	{
+		private final PsiManager psiManager;
+		
+		private final List<RuleViolation> violations = new ArrayList<>();
+		private final List<Report.SuppressedViolation> suppressedRuleViolations = new ArrayList<>();
+		private final List<Report.ProcessingError> errors = new ArrayList<>();
+		private final List<Report.ConfigurationError> configErrors = new ArrayList<>();
+		private final Map<FileId, VirtualFile> virtualFiles = new HashMap<>();
+		private final Set<NoAnalysisReason> noAnalysisReasons = EnumSet.noneOf(NoAnalysisReason.class);
+		private int analyzedFileCount;
+		
+		public Accumulator(final Project project)
+		{
+			this.psiManager = PsiManager.getInstance(project);
+		}
+		
+		public void add(final Collection<PMDAnalysisResult> results)
+		{
+			for(final PMDAnalysisResult result : results)
+			{
+				final Report report = result.report();
+				if(report != null)
+				{
+					this.violations.addAll(report.getViolations());
+					this.suppressedRuleViolations.addAll(report.getSuppressedViolations());
+					this.errors.addAll(report.getProcessingErrors());
+					this.configErrors.addAll(report.getConfigurationErrors());
+				}
+				Optional.ofNullable(result.noAnalysisReason())
+					.ifPresent(this.noAnalysisReasons::add);
+				
+				result.fileIdPsiFiles().forEach((fileId, psiFile) ->
+					Optional.ofNullable(psiFile.getVirtualFile())
+						.ifPresent(vf -> this.virtualFiles.put(fileId, vf)));
+				this.analyzedFileCount += result.analyzedFileCount();
+			}
+		}
+		
+		/**
+		 * @return a view of the results collected so far; only valid until the next {@link #add(Collection)}
+		 */
+		public CombinedPMDAnalysisResult toResult()
+		{
+			return new CombinedPMDAnalysisResult(
+				Collections.unmodifiableList(this.violations),
+				Collections.unmodifiableList(this.suppressedRuleViolations),
+				Collections.unmodifiableList(this.errors),
+				Collections.unmodifiableList(this.configErrors),
+				new PsiFileLookup(this.psiManager, this.virtualFiles),
+				this.analyzedFileCount,
+				Collections.unmodifiableSet(this.noAnalysisReasons)
+			);
+		}
+	}
+	
+	/**
+	 * Resolves the {@link PsiFile} of a {@link VirtualFile} when it's accessed. Deleted files are absent.
+	 */
+	static final class PsiFileLookup extends AbstractMap<FileId, PsiFile>
+	{
+		private final PsiManager psiManager;
+		private final Map<FileId, VirtualFile> virtualFiles;
+		
+		PsiFileLookup(final PsiManager psiManager, final Map<FileId, VirtualFile> virtualFiles)
+		{
+			this.psiManager = psiManager;
+			this.virtualFiles = virtualFiles;
+		}
+		
+		@Override
+		public PsiFile get(final Object key)
+		{
+			final VirtualFile vf = this.virtualFiles.get(key);
+			return vf != null ? this.findFile(vf) : null;
+		}
+		
+		private PsiFile findFile(final VirtualFile vf)
+		{
+			return ReadAction.compute(() -> vf.isValid() ? this.psiManager.findFile(vf) : null);
+		}
+		
+		@Override
+		public boolean containsKey(final Object key)
+		{
+			return this.virtualFiles.containsKey(key);
+		}
+		
+		@Override
+		public int size()
+		{
+			return this.virtualFiles.size();
+		}
+		
+		@Override
+		public boolean isEmpty()
+		{
+			return this.virtualFiles.isEmpty();
+		}
+		
+		@Override
+		public Set<Entry<FileId, PsiFile>> entrySet()
+		{
+			return this.virtualFiles.entrySet()
+				.stream()
+				.map(e -> new SimpleImmutableEntry<>(e.getKey(), this.findFile(e.getValue())))
+				.filter(e -> e.getValue() != null)
+				.collect(Collectors.toUnmodifiableSet());
+		}
 	}
 }
@@ -134,6 +134,8 @@ public class CurrentFileAnalysisManager implements FileEditorManagerListener, Di
 	{
 		this.findPSIFile(file)
 			.ifPresent(psiFile -> {
+				// Only the displayed results are dropped here
+				// The analysis result itself is kept in FileAnalysisResultCache and reused when the file is reopened
 				this.fileAnalysisResults.remove(psiFile);
 				if(psiFile.equals(this.currentlySelectedFile.get()))
 				{
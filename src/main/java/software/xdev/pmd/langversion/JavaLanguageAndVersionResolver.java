@@ -10,6 +10,13 @@ public class JavaLanguageAndVersionResolver extends CombinedLanguageAndVersionRe
 		super("java", PsiJavaFile.class);
 	}
 	
+	@Override
+	public boolean isVersionModuleWide()
+	{
+		// The language level is configured on module (or project) level
+		return true;
+	}
+	
 	@Override
 	protected String resolveLangVersionForFile(final PsiJavaFile file)
 	{
@@ -11,6 +11,13 @@ public class KotlinLanguageAndVersionResolver extends CombinedLanguageAndVersion
 		super("kotlin", KtFile.class);
 	}
 	
+	@Override
+	public boolean isVersionModuleWide()
+	{
+		// The language version is configured on module (facet) or project level
+		return true;
+	}
+	
 	@Override
 	protected String resolveLangVersionForFile(final KtFile file)
 	{
@@ -21,6 +21,15 @@ public interface LanguageVersionResolver
 	@NotNull
 	Set<Language> supportedLanguages();
 	
+	/**
+	 * @return <code>true</code> if all files of a module always resolve to the same version. This allows to resolve
+	 * the version only once per module.
+	 */
+	default boolean isVersionModuleWide()
+	{
+		return false;
+	}
+	
 	@Nullable
 	LanguageVersion resolveVersion(@NotNull Language language, @NotNull PsiFile file);
 }
@@ -97,6 +97,16 @@ public class LanguageVersionResolverService
 				.findFirst());
 	}
 	
+	/**
+	 * @return <code>true</code> if all resolvers of the language resolve the same version for all files of a module
+	 */
+	public boolean isVersionModuleWide(@NotNull final Language language)
+	{
+		final List<LanguageVersionResolver> languageVersionResolvers = this.orderedVersionResolvers().get(language);
+		return languageVersionResolvers != null
+			&& languageVersionResolvers.stream().allMatch(LanguageVersionResolver::isVersionModuleWide);
+	}
+	
 	public Set<String> supportedLanguageIds()
 	{
 		return this.orderedVersionResolvers().keySet()
@@ -0,0 +1,137 @@
+package software.xdev.pmd.langversion;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.intellij.facet.Facet;
+import com.intellij.facet.FacetManager;
+import com.intellij.facet.FacetManagerListener;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.psi.PsiFile;
+
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageVersion;
+
+
+/**
+ * Caches the resolved language version per module and language.
+ * <p>
+ * Resolving the version (e.g. the language level of a Java file) for every file is expensive while the result is
+ * nearly always the same inside a module. Files of languages whose version is not module wide (see
+ * {@link LanguageVersionResolver#isVersionModuleWide()}) or that don't belong to a module are still resolved
+ * individually.
+ * </p>
+ * <p>
+ * The cache is invalidated when the roots of the project change (which includes changes of the language level) or
+ * when facets (e.g. the Kotlin compiler settings) change.
+ * </p>
+ */
+public class ModuleLanguageVersionCache implements Disposable
+{
+	private static final Logger LOG = Logger.getInstance(ModuleLanguageVersionCache.class);
+	
+	private final LanguageVersionResolverService resolverService =
+		ApplicationManager.getApplication().getService(LanguageVersionResolverService.class);
+	private final ManagedLanguageVersionResolver resolver = new ManagedLanguageVersionResolver();
+	
+	private final Map<ModuleLanguageKey, LanguageVersion> cachedVersions = new ConcurrentHashMap<>();
+	
+	public ModuleLanguageVersionCache(@NotNull final Project project)
+	{
+		project.getMessageBus()
+			.connect(this)
+			.subscribe(ModuleRootListener.TOPIC, new ModuleRootListener()
+			{
+				@Override
+				public void rootsChanged(@NotNull final ModuleRootEvent event)
+				{
+					ModuleLanguageVersionCache.this.invalidate();
+				}
+			});
+		project.getMessageBus()
+			.connect(this)
+			.subscribe(FacetManager.FACETS_TOPIC, new FacetManagerListener()
+			{
+				@Override
+				public void facetAdded(@NotNull final Facet facet)
+				{
+					ModuleLanguageVersionCache.this.invalidate();
+				}
+				
+				@Override
+				public void facetRemoved(@NotNull final Facet facet)
+				{
+					ModuleLanguageVersionCache.this.invalidate();
+				}
+				
+				@Override
+				public void facetConfigurationChanged(@NotNull final Facet facet)
+				{
+					ModuleLanguageVersionCache.this.invalidate();
+				}
+			});
+	}
+	
+	/**
+	 * Resolves the language and version of the file.
+	 * <p>
+	 * Requires read access.
+	 * </p>
+	 */
+	public Optional<LanguageVersion> resolve(@NotNull final PsiFile file)
+	{
+		return this.resolverService.resolveLanguage(file)
+			.map(language -> this.resolveWithLang(language, file));
+	}
+	
+	private LanguageVersion resolveWithLang(final Language language, final PsiFile file)
+	{
+		final Module module = this.resolverService.isVersionModuleWide(language)
+			? ModuleUtilCore.findModuleForFile(file)
+			: null;
+		if(module == null)
+		{
+			return this.resolver.resolveWithLang(language, file);
+		}
+		
+		return this.cachedVersions.computeIfAbsent(
+			new ModuleLanguageKey(module, language),
+			k -> this.resolver.resolveWithLang(language, file));
+	}
+	
+	/**
+	 * @return <code>true</code> if all files of the language inside a module resolve to the same version
+	 */
+	public boolean isVersionModuleWide(@NotNull final Language language)
+	{
+		return this.resolverService.isVersionModuleWide(language);
+	}
+	
+	public void invalidate()
+	{
+		LOG.debug("Invalidating cached language versions");
+		this.cachedVersions.clear();
+	}
+	
+	@Override
+	public void dispose()
+	{
+		this.cachedVersions.clear();
+	}
+	
+	record ModuleLanguageKey(
+		Module module,
+		Language language)
+	{
+	}
+}
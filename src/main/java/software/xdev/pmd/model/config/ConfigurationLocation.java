@@ -135,6 +135,16 @@ public abstract class ConfigurationLocation implements Comparable<ConfigurationL
 		return this.cachedRuleSet;
 	}
 	
+	/**
+	 * @return the cached ruleset or <code>null</code> if it's not loaded yet or needs to be reloaded; never loads it
+	 */
+	@Nullable
+	public RuleSet getCachedRuleSetIfUpToDate()
+	{
+		final RuleSet ruleSet = this.cachedRuleSet;
+		return ruleSet != null && !this.shouldReloadRuleSet() ? ruleSet : null;
+	}
+	
 	protected synchronized void loadRuleSetSyncIfStillRequired(final RuleSet expectedRuleSetWhenLoadingStarts)
 	{
 		if(this.cachedRuleSet == null || this.cachedRuleSet == expectedRuleSetWhenLoadingStarts)
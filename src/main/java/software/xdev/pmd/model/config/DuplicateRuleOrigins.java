@@ -0,0 +1,50 @@
+package software.xdev.pmd.model.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.util.containers.CollectionFactory;
+
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+
+
+/**
+ * Remembers in which rulesets the rules were contained before {@link RuleSetDiff#withoutDuplicateRules(List) their
+ * duplicates were removed}, so that all origins of a rule can be displayed.
+ */
+public class DuplicateRuleOrigins
+{
+	// Rules are not held strongly so that the rules of replaced rulesets can be collected
+	private final Map<Rule, List<String>> origins = CollectionFactory.createConcurrentWeakIdentityMap();
+	
+	public void update(final RuleSetDiff.DeduplicatedRuleSets deduplicatedRuleSets)
+	{
+		for(final RuleSet ruleSet : deduplicatedRuleSets.ruleSets())
+		{
+			for(final Rule rule : ruleSet.getRules())
+			{
+				final List<String> ruleOrigins = deduplicatedRuleSets.origins().get(rule);
+				if(ruleOrigins != null)
+				{
+					this.origins.put(rule, List.copyOf(ruleOrigins));
+				}
+				else
+				{
+					this.origins.remove(rule);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the names of all rulesets that contain the rule or <code>null</code> if it's only contained in one
+	 */
+	@Nullable
+	public List<String> get(final Rule rule)
+	{
+		return this.origins.get(rule);
+	}
+}
@@ -0,0 +1,167 @@
+package software.xdev.pmd.model.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ThrowableComputable;
+
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.lang.rule.RuleReference;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import software.xdev.pmd.external.org.springframework.util.ConcurrentReferenceHashMap;
+
+
+/**
+ * Caches parsed rulesets by their content, so that identical rulesets are only parsed once per IDE session - even
+ * when they are used by multiple projects or are reconfigured.
+ * <p>
+ * Rulesets that reference other ruleset files are only reused when the contents of these files are also unchanged.
+ * </p>
+ * <p>
+ * The cache is only kept in memory: PMD rules can't be serialized and restoring them from e.g. a written ruleset
+ * would again require parsing and resolving the references, so a disk cache would not reduce the startup time.
+ * </p>
+ */
+public class ParsedRuleSetCache
+{
+	private static final Logger LOG = Logger.getInstance(ParsedRuleSetCache.class);
+	
+	private final Map<CacheKey, CachedRuleSet> cache = new ConcurrentReferenceHashMap<>();
+	
+	/**
+	 * @param fileName The name of the ruleset (which is used by PMD for e.g. displaying it)
+	 * @param content  The content of the ruleset
+	 * @param loader   Parses the ruleset; invoked when there is no cached ruleset
+	 */
+	public RuleSet getOrLoad(
+		final String fileName,
+		final String content,
+		final ThrowableComputable<RuleSet, IOException> loader) throws IOException
+	{
+		return this.getOrLoad(
+			new CacheKey(PMDVersion.VERSION, fileName, sha256(content.getBytes(StandardCharsets.UTF_8))),
+			loader);
+	}
+	
+	/**
+	 * @param bundledConfigId The id of the bundled configuration; bundled rulesets only change with the PMD version
+	 * @param loader          Loads the ruleset; invoked when there is no cached ruleset
+	 */
+	public RuleSet getOrLoadBundled(
+		final String bundledConfigId,
+		final ThrowableComputable<RuleSet, IOException> loader) throws IOException
+	{
+		return this.getOrLoad(new CacheKey(PMDVersion.VERSION, bundledConfigId, null), loader);
+	}
+	
+	private RuleSet getOrLoad(
+		final CacheKey key,
+		final ThrowableComputable<RuleSet, IOException> loader) throws IOException
+	{
+		final CachedRuleSet cached = this.cache.get(key);
+		if(cached != null && cached.isReferencedFilesUnchanged())
+		{
+			LOG.debug("Using cached ruleset " + key.name());
+			return cached.ruleSet();
+		}
+		
+		final RuleSet ruleSet = loader.compute();
+		this.cache.put(key, new CachedRuleSet(
+			ruleSet,
+			referencedFiles(ruleSet).stream()
+				.collect(Collectors.toMap(Function.identity(), ParsedRuleSetCache::contentHash))));
+		return ruleSet;
+	}
+	
+	/**
+	 * @return all ruleset files (that exist on the file system) which are referenced by the ruleset
+	 */
+	public static List<Path> referencedFiles(final RuleSet ruleSet)
+	{
+		return ruleSet.getRules().stream()
+			.filter(RuleReference.class::isInstance)
+			.map(rule -> ((RuleReference)rule).getRuleSetReference().getRuleSetFileName())
+			.distinct()
+			// Resources (e.g. category/java/bestpractices.xml) are not files
+			.map(ParsedRuleSetCache::existingFile)
+			.filter(Objects::nonNull)
+			.toList();
+	}
+	
+	@Nullable
+	private static Path existingFile(final String fileName)
+	{
+		try
+		{
+			final Path path = Paths.get(fileName);
+			return Files.isRegularFile(path) ? path : null;
+		}
+		catch(final InvalidPathException ex)
+		{
+			return null;
+		}
+	}
+	
+	private static String contentHash(final Path file)
+	{
+		try
+		{
+			return sha256(Files.readAllBytes(file));
+		}
+		catch(final IOException ex)
+		{
+			// Will never match -> the ruleset is loaded again
+			return "";
+		}
+	}
+	
+	private static String sha256(final byte[] bytes)
+	{
+		try
+		{
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		}
+		catch(final NoSuchAlgorithmException ex)
+		{
+			throw new IllegalStateException("SHA-256 is not available", ex);
+		}
+	}
+	
+	/**
+	 * @param contentHash <code>null</code> for bundled rulesets
+	 */
+	record CacheKey(
+		String pmdVersion,
+		String name,
+		@Nullable String contentHash)
+	{
+	}
+	
+	
+	record CachedRuleSet(
+		RuleSet ruleSet,
+		Map<Path, String> referencedFileHashes)
+	{
+		boolean isReferencedFilesUnchanged()
+		{
+			return this.referencedFileHashes.entrySet()
+				.stream()
+				.allMatch(e -> !e.getValue().isEmpty() && e.getValue().equals(contentHash(e.getKey())));
+		}
+	}
+}
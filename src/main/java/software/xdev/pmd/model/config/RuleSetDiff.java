@@ -0,0 +1,215 @@
+package software.xdev.pmd.model.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.Nullable;
+
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleReference;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+
+
+/**
+ * Compares rulesets and their rules, e.g. so that the instances of unchanged rules can be reused.
+ * <p>
+ * A reused rule keeps its initialization (e.g. the compiled XPath query), so that only changed rules need to be
+ * initialized again. A rule is considered unchanged when its name, class, language (versions), priority, texts and
+ * the values of all its properties (which includes the XPath expression) are identical.
+ * </p>
+ */
+public final class RuleSetDiff
+{
+	private RuleSetDiff()
+	{
+	}
+	
+	/**
+	 * @return the loaded ruleset where the unchanged rules are replaced by the ones of the previous ruleset
+	 */
+	public static RuleSet reuseUnchangedRules(@Nullable final RuleSet previous, final RuleSet loaded)
+	{
+		if(previous == null)
+		{
+			return loaded;
+		}
+		
+		final Map<String, Rule> previousRules = previous.getRules().stream()
+			.collect(Collectors.toMap(Rule::getName, Function.identity(), (r1, r2) -> r1));
+		// Each rule instance can only be used once inside a ruleset
+		final Set<Rule> reusedRules = Collections.newSetFromMap(new IdentityHashMap<>());
+		
+		final List<Rule> rules = loaded.getRules().stream()
+			.map(rule -> {
+				final Rule previousRule = previousRules.get(rule.getName());
+				if(previousRule != null && isSameDefinition(previousRule, rule) && reusedRules.add(previousRule))
+				{
+					return previousRule;
+				}
+				return rule;
+			})
+			.toList();
+		if(reusedRules.isEmpty())
+		{
+			return loaded;
+		}
+		
+		final RuleSet.RuleSetBuilder builder = loaded.toBuilder();
+		builder.removeIf(rule -> true);
+		rules.forEach(builder::addRule);
+		return builder.build();
+	}
+	
+	/**
+	 * Removes rules that are already contained in a previous ruleset (e.g. when a custom ruleset references a rule of
+	 * a bundled category that is also active), so that they are not evaluated and reported multiple times.
+	 * <p>
+	 * The rule of the first ruleset is kept. Rules are only removed when both rulesets apply to the same files.
+	 * </p>
+	 */
+	public static DeduplicatedRuleSets withoutDuplicateRules(final List<RuleSet> ruleSets)
+	{
+		if(ruleSets.size() < 2)
+		{
+			return new DeduplicatedRuleSets(ruleSets, Map.of());
+		}
+		
+		final Map<String, List<RuleSetAndRule>> keptRules = new HashMap<>();
+		final Map<Rule, List<String>> origins = new IdentityHashMap<>();
+		final List<RuleSet> result = ruleSets.stream()
+			.map(ruleSet -> {
+				final Set<Rule> duplicates = Collections.newSetFromMap(new IdentityHashMap<>());
+				for(final Rule rule : ruleSet.getRules())
+				{
+					final List<RuleSetAndRule> sameNameRules =
+						keptRules.computeIfAbsent(rule.getName(), ignored -> new ArrayList<>());
+					final RuleSetAndRule duplicateOf = sameNameRules.stream()
+						.filter(kept -> kept.ruleSet() != ruleSet
+							&& isSameFileFilter(kept.ruleSet(), ruleSet)
+							&& isSameEffectiveRule(kept.rule(), rule))
+						.findFirst()
+						.orElse(null);
+					if(duplicateOf != null)
+					{
+						duplicates.add(rule);
+						origins.computeIfAbsent(
+								duplicateOf.rule(),
+								ignored -> new ArrayList<>(List.of(displayName(duplicateOf.ruleSet()))))
+							.add(displayName(ruleSet));
+					}
+					else
+					{
+						sameNameRules.add(new RuleSetAndRule(ruleSet, rule));
+					}
+				}
+				
+				if(duplicates.isEmpty())
+				{
+					return ruleSet;
+				}
+				final RuleSet.RuleSetBuilder builder = ruleSet.toBuilder();
+				builder.removeIf(duplicates::contains);
+				return builder.build();
+			})
+			.filter(ruleSet -> !ruleSet.getRules().isEmpty())
+			.toList();
+		return new DeduplicatedRuleSets(result, origins);
+	}
+	
+	private static String displayName(final RuleSet ruleSet)
+	{
+		return ruleSet.getFileName() != null ? ruleSet.getFileName() : ruleSet.getName();
+	}
+	
+	private static boolean isSameFileFilter(final RuleSet rs1, final RuleSet rs2)
+	{
+		return patterns(rs1.getFileExclusions()).equals(patterns(rs2.getFileExclusions()))
+			&& patterns(rs1.getFileInclusions()).equals(patterns(rs2.getFileInclusions()));
+	}
+	
+	private static List<String> patterns(final List<Pattern> patterns)
+	{
+		return patterns.stream().map(Pattern::pattern).toList();
+	}
+	
+	private static boolean isSameDefinition(final Rule r1, final Rule r2)
+	{
+		return r1.getClass() == r2.getClass()
+			&& Objects.equals(r1.getRuleSetName(), r2.getRuleSetName())
+			&& isSameEffectiveRule(r1, r2);
+	}
+	
+	/**
+	 * Compares what the rules do, independent of how they are defined (e.g. as a reference to a rule of a category
+	 * ruleset or by the category ruleset itself) and in which ruleset they are defined.
+	 */
+	private static boolean isSameEffectiveRule(final Rule r1, final Rule r2)
+	{
+		return dereference(r1).getClass() == dereference(r2).getClass()
+			&& Objects.equals(r1.getRuleClass(), r2.getRuleClass())
+			&& Objects.equals(r1.getName(), r2.getName())
+			&& Objects.equals(r1.getLanguage(), r2.getLanguage())
+			&& Objects.equals(r1.getMinimumLanguageVersion(), r2.getMinimumLanguageVersion())
+			&& Objects.equals(r1.getMaximumLanguageVersion(), r2.getMaximumLanguageVersion())
+			&& r1.getPriority() == r2.getPriority()
+			&& Objects.equals(r1.getMessage(), r2.getMessage())
+			&& Objects.equals(r1.getDescription(), r2.getDescription())
+			&& Objects.equals(r1.getExternalInfoUrl(), r2.getExternalInfoUrl())
+			&& serializedProperties(r1).equals(serializedProperties(r2));
+	}
+	
+	private static Rule dereference(final Rule rule)
+	{
+		Rule current = rule;
+		while(current instanceof final RuleReference ruleReference)
+		{
+			current = ruleReference.getRule();
+		}
+		return current;
+	}
+	
+	/**
+	 * Not all property values implement equals (e.g. regex patterns), therefore their serialized form is compared.
+	 */
+	private static Map<String, String> serializedProperties(final Rule rule)
+	{
+		return rule.getPropertiesByPropertyDescriptor().entrySet()
+			.stream()
+			.collect(Collectors.toMap(
+				e -> e.getKey().name(),
+				e -> serialize(e.getKey(), e.getValue()),
+				(v1, v2) -> v1));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> String serialize(final PropertyDescriptor<T> descriptor, final Object value)
+	{
+		return String.valueOf(descriptor.serializer().toString((T)value));
+	}
+	
+	/**
+	 * @param ruleSets The rulesets without the duplicate rules
+	 * @param origins  The rulesets that contained a kept rule, for each rule that was contained in multiple rulesets
+	 */
+	public record DeduplicatedRuleSets(
+		List<RuleSet> ruleSets,
+		Map<Rule, List<String>> origins)
+	{
+	}
+	
+	record RuleSetAndRule(
+		RuleSet ruleSet,
+		Rule rule)
+	{
+	}
+}
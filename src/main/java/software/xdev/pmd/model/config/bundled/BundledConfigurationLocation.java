@@ -1,16 +1,19 @@
 package software.xdev.pmd.model.config.bundled;
 
+import java.io.IOException;
 import java.util.Objects;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 
 import net.sourceforge.pmd.lang.rule.RuleSet;
 import net.sourceforge.pmd.lang.rule.RuleSetLoader;
 import software.xdev.pmd.model.config.ConfigurationLocation;
 import software.xdev.pmd.model.config.ConfigurationType;
+import software.xdev.pmd.model.config.ParsedRuleSetCache;
 
 
 public class BundledConfigurationLocation extends ConfigurationLocation
@@ -55,9 +58,11 @@ public class BundledConfigurationLocation extends ConfigurationLocation
 	
 	@Nullable
 	@Override
-	protected synchronized RuleSet loadRuleSet()
+	protected synchronized RuleSet loadRuleSet() throws IOException
 	{
-		return new RuleSetLoader().loadFromResource(this.getLocation());
+		return ApplicationManager.getApplication().getService(ParsedRuleSetCache.class).getOrLoadBundled(
+			this.bundledConfig.getId(),
+			() -> new RuleSetLoader().loadFromResource(this.getLocation()));
 	}
 	
 	@Override
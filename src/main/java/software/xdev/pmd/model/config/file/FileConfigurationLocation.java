@@ -4,17 +4,21 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 
 import net.sourceforge.pmd.lang.rule.RuleSet;
 import net.sourceforge.pmd.lang.rule.RuleSetLoader;
 import software.xdev.pmd.model.config.ConfigurationLocation;
 import software.xdev.pmd.model.config.ConfigurationType;
+import software.xdev.pmd.model.config.ParsedRuleSetCache;
+import software.xdev.pmd.model.config.RuleSetDiff;
 import software.xdev.pmd.util.io.ProjectFilePaths;
 
 
@@ -23,8 +27,8 @@ import software.xdev.pmd.util.io.ProjectFilePaths;
  */
 public class FileConfigurationLocation extends ConfigurationLocation
 {
-	private long nextReloadRuleSetMs;
-	private Instant lastModifiedFileTime;
+	// Set by the RuleSetFileWatcher when the file (or a referenced file) changes
+	private final AtomicBoolean ruleSetDirty = new AtomicBoolean();
 	
 	public FileConfigurationLocation(
 		@NotNull final Project project,
@@ -56,6 +60,7 @@ public class FileConfigurationLocation extends ConfigurationLocation
 		}
 		
 		super.setLocation(this.projectFilePaths().tokenise(location));
+		this.markRuleSetDirty();
 	}
 	
 	protected Path getLocationPath()
@@ -63,40 +68,51 @@ public class FileConfigurationLocation extends ConfigurationLocation
 		return Paths.get(this.getLocation());
 	}
 	
-	@Nullable
-	protected Instant lastModifiedTimeFromLocation()
-	{
-		try
-		{
-			return Files.getLastModifiedTime(this.getLocationPath()).toInstant();
-		}
-		catch(final IOException e)
-		{
-			return null;
-		}
-	}
-	
 	@SuppressWarnings("checkstyle:IllegalIdentifierName")
 	@Override
 	protected synchronized RuleSet loadRuleSet() throws IOException
 	{
-		this.nextReloadRuleSetMs = System.currentTimeMillis() + 10 * 1000;
+		// Reset before reading so that changes during loading are not lost
+		this.ruleSetDirty.set(false);
 		
-		final RuleSet ruleSet = new RuleSetLoader().loadFromString(
-			this.getLocation(),
-			new String(Files.readAllBytes(this.getLocationPath())));
-		this.lastModifiedFileTime = this.lastModifiedTimeFromLocation();
-		return ruleSet;
+		final Path locationPath = this.getLocationPath();
+		final String location = this.getLocation();
+		final String content = new String(Files.readAllBytes(locationPath));
+		final RuleSet ruleSet = ApplicationManager.getApplication().getService(ParsedRuleSetCache.class).getOrLoad(
+			location,
+			content,
+			() -> new RuleSetLoader().loadFromString(location, content));
+		this.ruleSetFileWatcher().watch(this, this.watchedFiles(locationPath, ruleSet));
+		// Unchanged rules keep their initialization
+		return RuleSetDiff.reuseUnchangedRules(this.cachedRuleSet, ruleSet);
+	}
+	
+	/**
+	 * @return the ruleset file and all files that are referenced by it
+	 */
+	private Set<String> watchedFiles(final Path locationPath, final RuleSet ruleSet)
+	{
+		final Set<String> files = new LinkedHashSet<>();
+		files.add(locationPath.toAbsolutePath().toString());
+		ParsedRuleSetCache.referencedFiles(ruleSet)
+			.forEach(path -> files.add(path.toAbsolutePath().toString()));
+		return files;
+	}
+	
+	public void markRuleSetDirty()
+	{
+		this.ruleSetDirty.set(true);
 	}
 	
 	@Override
 	protected boolean shouldReloadRuleSet()
 	{
-		// Check if recently checked
-		return System.currentTimeMillis() > this.nextReloadRuleSetMs
-			// Check if file was modified
-			&& (this.lastModifiedFileTime == null
-			|| !this.lastModifiedFileTime.equals(this.lastModifiedTimeFromLocation()));
+		return this.ruleSetDirty.get();
+	}
+	
+	private RuleSetFileWatcher ruleSetFileWatcher()
+	{
+		return this.getProject().getService(RuleSetFileWatcher.class);
 	}
 	
 	@NotNull
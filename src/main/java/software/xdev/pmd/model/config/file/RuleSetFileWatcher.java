@@ -0,0 +1,163 @@
+package software.xdev.pmd.model.config.file;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.containers.CollectionFactory;
+
+
+/**
+ * Marks the rulesets of file based configuration locations as dirty when one of their files changes.
+ * <p>
+ * Previously the modification time of the file was polled during analyses, which was slow and picked up changes
+ * only after some time. Changes done outside the IDE are detected as soon as the IDE refreshes its virtual file
+ * system (e.g. when the IDE window is focused).
+ * </p>
+ * <p>
+ * The VFS only reports changes of files it already knows. The watched files are therefore loaded into the VFS and
+ * files outside of the project content are additionally registered with the native file watcher.
+ * </p>
+ */
+public class RuleSetFileWatcher implements Disposable
+{
+	private static final Logger LOG = Logger.getInstance(RuleSetFileWatcher.class);
+	
+	// Locations are not held strongly so that replaced locations can be collected
+	// Identity is used as the equality of locations is based on their (mutable) description
+	private final Map<FileConfigurationLocation, WatchedFiles> watchedFiles =
+		CollectionFactory.createConcurrentWeakIdentityMap();
+	
+	private final Project project;
+	
+	public RuleSetFileWatcher(@NotNull final Project project)
+	{
+		this.project = project;
+		project.getMessageBus()
+			.connect(this)
+			.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener()
+			{
+				@Override
+				public void after(@NotNull final List<? extends @NotNull VFileEvent> events)
+				{
+					RuleSetFileWatcher.this.onFilesChanged(events);
+				}
+			});
+	}
+	
+	/**
+	 * Watches the files of the location. Replaces the previously watched files of the location.
+	 */
+	public void watch(final FileConfigurationLocation location, final Collection<String> paths)
+	{
+		final LocalFileSystem localFileSystem = LocalFileSystem.getInstance();
+		final ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(this.project);
+		
+		final Set<String> outsideOfContent = paths.stream()
+			.filter(path -> {
+				final VirtualFile file = findFile(localFileSystem, Path.of(path));
+				return file == null || !ReadAction.compute(() -> fileIndex.isInContent(file));
+			})
+			.map(FileUtil::toSystemIndependentName)
+			.collect(Collectors.toSet());
+		
+		final WatchedFiles previous = this.watchedFiles.get(location);
+		final Set<LocalFileSystem.WatchRequest> watchRequests = localFileSystem.replaceWatchedRoots(
+			previous != null ? previous.watchRequests() : Set.of(),
+			null,
+			outsideOfContent);
+		
+		this.watchedFiles.put(
+			location,
+			new WatchedFiles(
+				paths.stream()
+					.map(FileUtil::toSystemIndependentName)
+					.collect(Collectors.toUnmodifiableSet()),
+				watchRequests));
+	}
+	
+	@Nullable
+	private static VirtualFile findFile(final LocalFileSystem localFileSystem, final Path path)
+	{
+		final Application application = ApplicationManager.getApplication();
+		// A synchronous refresh is not possible inside a background read action
+		return application.isReadAccessAllowed() && !application.isDispatchThread()
+			? localFileSystem.findFileByNioFile(path)
+			: localFileSystem.refreshAndFindFileByNioFile(path);
+	}
+	
+	private void onFilesChanged(final List<? extends VFileEvent> events)
+	{
+		if(this.watchedFiles.isEmpty())
+		{
+			return;
+		}
+		
+		final Set<String> changedPaths = events.stream()
+			.flatMap(RuleSetFileWatcher::affectedPaths)
+			.collect(Collectors.toSet());
+		
+		final List<FileConfigurationLocation> changedLocations = this.watchedFiles.entrySet()
+			.stream()
+			.filter(e -> e.getValue().paths().stream().anyMatch(changedPaths::contains))
+			.map(Map.Entry::getKey)
+			.toList();
+		
+		for(final FileConfigurationLocation location : changedLocations)
+		{
+			LOG.debug("Ruleset of " + location + " changed");
+			location.markRuleSetDirty();
+		}
+	}
+	
+	private static Stream<String> affectedPaths(final VFileEvent event)
+	{
+		if(event instanceof final VFileMoveEvent moveEvent)
+		{
+			return Stream.of(moveEvent.getOldPath(), moveEvent.getNewPath());
+		}
+		if(event instanceof final VFilePropertyChangeEvent propertyChangeEvent && propertyChangeEvent.isRename())
+		{
+			return Stream.of(propertyChangeEvent.getOldPath(), propertyChangeEvent.getNewPath());
+		}
+		return Stream.of(event.getPath());
+	}
+	
+	@Override
+	public void dispose()
+	{
+		LocalFileSystem.getInstance().removeWatchedRoots(this.watchedFiles.values()
+			.stream()
+			.flatMap(w -> w.watchRequests().stream())
+			.toList());
+		this.watchedFiles.clear();
+	}
+	
+	record WatchedFiles(
+		Set<String> paths,
+		Set<LocalFileSystem.WatchRequest> watchRequests)
+	{
+	}
+}
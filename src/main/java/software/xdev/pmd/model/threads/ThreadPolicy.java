@@ -0,0 +1,44 @@
+package software.xdev.pmd.model.threads;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * Possible values of the 'threads' configuration item.
+ */
+public enum ThreadPolicy
+{
+	/**
+	 * Determine the number of threads based on the number of files and how long the analysis of a file usually takes
+	 */
+	AUTO("Automatic"),
+	
+	/**
+	 * Use a fixed number of threads
+	 */
+	FIXED("Fixed number of threads"),
+	
+	/**
+	 * Use a percentage of the available CPU cores
+	 */
+	SHARE_OF_CORES("Share of CPU cores (%)");
+	
+	private final String displayName;
+	
+	ThreadPolicy(final String displayName)
+	{
+		this.displayName = displayName;
+	}
+	
+	@NotNull
+	public static ThreadPolicy getDefaultValue()
+	{
+		return AUTO;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.displayName;
+	}
+}
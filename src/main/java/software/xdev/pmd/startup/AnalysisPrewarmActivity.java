@@ -0,0 +1,179 @@
+package software.xdev.pmd.startup;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.ProjectActivity;
+
+import kotlin.Unit;
+import kotlin.coroutines.Continuation;
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageProcessorRegistry;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
+import software.xdev.pmd.analysis.classpath.AnalysisClassLoaderService;
+import software.xdev.pmd.config.ConfigurationLocationSource;
+import software.xdev.pmd.model.config.ConfigurationLocation;
+
+
+/**
+ * Prepares everything that is required for an analysis in the background when a project is opened.
+ * <p>
+ * Otherwise the first analysis of an editor has to wait until the rulesets are parsed, their rules are initialized
+ * (e.g. XPath expressions are compiled) and the classloaders for type resolution are built.
+ * </p>
+ * <p>
+ * The rule instances are shared with the analyses. Their initialization is serialized (see the forked
+ * {@link RuleSets}): An analysis that starts while the rules are initialized here waits for it and then skips the
+ * already initialized rules.
+ * </p>
+ * <p>
+ * The work is executed on a low priority thread and stops as soon as the project is closed.
+ * </p>
+ */
+public class AnalysisPrewarmActivity implements ProjectActivity
+{
+	private static final Logger LOG = Logger.getInstance(AnalysisPrewarmActivity.class);
+	
+	private static final long IDLE_THREAD_KEEP_ALIVE_MS = 10_000;
+	
+	private static final ExecutorService PREWARM_SERVICE = createExecutor();
+	
+	private static ExecutorService createExecutor()
+	{
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+			1,
+			1,
+			IDLE_THREAD_KEEP_ALIVE_MS,
+			TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(),
+			Thread.ofPlatform()
+				.name("PMD-Prewarm-", 0)
+				.priority(Thread.MIN_PRIORITY)
+				.daemon()
+				.factory());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	@Nullable
+	@Override
+	public Object execute(@NotNull final Project project, @NotNull final Continuation<? super Unit> continuation)
+	{
+		PREWARM_SERVICE.execute(() -> {
+			try
+			{
+				prewarm(project);
+			}
+			catch(final ProcessCanceledException ignored)
+			{
+				LOG.debug("Prewarming was cancelled as the project was closed");
+			}
+			catch(final Exception ex)
+			{
+				// Everything will be done again by the analysis (where errors are also reported)
+				LOG.warn("Failed to prewarm analysis", ex);
+			}
+		});
+		return null;
+	}
+	
+	private static void prewarm(final Project project)
+	{
+		final long startMs = System.currentTimeMillis();
+		
+		checkNotDisposed(project);
+		final List<Module> modules = List.of(ModuleManager.getInstance(project).getModules());
+		
+		final Set<ConfigurationLocation> locations = new LinkedHashSet<>();
+		for(final Module module : modules)
+		{
+			checkNotDisposed(project);
+			locations.addAll(project.getService(ConfigurationLocationSource.class).getConfigurationLocations(module));
+		}
+		
+		final List<RuleSet> ruleSets = locations.stream()
+			.map(location -> {
+				checkNotDisposed(project);
+				return location.getOrRefreshCachedRuleSet();
+			})
+			.filter(Objects::nonNull)
+			.toList();
+		
+		checkNotDisposed(project);
+		initializeRules(ruleSets);
+		
+		final AnalysisClassLoaderService classLoaderService = project.getService(AnalysisClassLoaderService.class);
+		for(final Module module : modules)
+		{
+			checkNotDisposed(project);
+			if(!module.isDisposed())
+			{
+				// Only opens the classloader, it stays cached for the analyses
+				classLoaderService.classLoaderFor(List.of(module)).close();
+			}
+		}
+		
+		LOG.info("Prewarmed analysis of " + modules.size() + " modules with " + ruleSets.size() + " rulesets, took "
+			+ (System.currentTimeMillis() - startMs) + "ms");
+	}
+	
+	/**
+	 * Initializes the rules with the language processors PMD would use. As the rule instances are kept by the
+	 * configuration locations, the analysis can skip the initialization afterward.
+	 */
+	private static void initializeRules(final Collection<RuleSet> ruleSets)
+	{
+		if(ruleSets.isEmpty())
+		{
+			return;
+		}
+		
+		final Set<Language> languages = ruleSets.stream()
+			.flatMap(ruleSet -> ruleSet.getRules().stream())
+			.map(Rule::getLanguage)
+			.filter(Objects::nonNull)
+			.collect(Collectors.toSet());
+		// Languages can depend on other languages (which are required to create their processors)
+		final LanguageRegistry languageRegistry = LanguageRegistry.PMD.filter(l -> languages.contains(l)
+			|| languages.stream().anyMatch(dependant -> dependant.getDependencies().contains(l.getId())));
+		
+		final PMDConfiguration pmdConfig = new PMDConfiguration();
+		try(final LanguageProcessorRegistry lpRegistry = LanguageProcessorRegistry.create(
+			languageRegistry,
+			languageRegistry.getLanguages().stream()
+				.collect(Collectors.toMap(Function.identity(), pmdConfig::getLanguageProperties)),
+			pmdConfig.getReporter()))
+		{
+			new RuleSets(ruleSets).initializeRules(lpRegistry, pmdConfig.getReporter());
+		}
+	}
+	
+	private static void checkNotDisposed(final Project project)
+	{
+		if(project.isDisposed())
+		{
+			throw new ProcessCanceledException();
+		}
+	}
+}
@@ -29,6 +29,7 @@ import com.intellij.openapi.ui.Messages;
 import com.intellij.ui.AnActionButton;
 import com.intellij.ui.AnActionButtonRunnable;
 import com.intellij.ui.AnActionButtonUpdater;
+import com.intellij.ui.JBIntSpinner;
 import com.intellij.ui.TitledSeparator;
 import com.intellij.ui.ToolbarDecorator;
 import com.intellij.ui.components.JBCheckBox;
@@ -37,10 +38,12 @@ import com.intellij.ui.components.panels.HorizontalLayout;
 import com.intellij.ui.table.JBTable;
 import com.intellij.util.ui.JBUI;
 
+import software.xdev.pmd.analysis.scheduling.AnalysisThreadPlanner;
 import software.xdev.pmd.config.PluginConfiguration;
 import software.xdev.pmd.config.PluginConfigurationBuilder;
 import software.xdev.pmd.model.config.ConfigurationLocation;
 import software.xdev.pmd.model.scope.ScanScope;
+import software.xdev.pmd.model.threads.ThreadPolicy;
 
 
 /**
@@ -58,9 +61,27 @@ public class PMDConfigPanel extends JPanel
 	
 	private final JLabel scopeDropdownLabel = new JLabel("Scan Scope:");
 	private final ComboBox<ScanScope> scopeDropdown = new ComboBox<>(ScanScope.values());
-	private final JBCheckBox useSingleThreadCheckbox = new JBCheckBox("Use single thread");
+	private final JLabel threadPolicyLabel = new JLabel("Threads:");
+	private final ComboBox<ThreadPolicy> threadPolicyDropdown = new ComboBox<>(ThreadPolicy.values());
+	private final JBIntSpinner fixedThreadCountSpinner = new JBIntSpinner(
+		Math.min(PluginConfigurationBuilder.DEFAULT_FIXED_THREAD_COUNT, AnalysisThreadPlanner.maxThreads()),
+		1,
+		AnalysisThreadPlanner.maxThreads());
+	private final JLabel fixedThreadCountMaxLabel =
+		new JLabel("(max. " + AnalysisThreadPlanner.maxThreads() + " = number of CPU cores)");
+	private final JBIntSpinner coreSharePercentSpinner = new JBIntSpinner(
+		PluginConfigurationBuilder.DEFAULT_CORE_SHARE_PERCENT,
+		1,
+		100,
+		5);
 	private final JBCheckBox showSuppressedWarningsCheckbox = new JBCheckBox("Show suppressed warnings");
 	private final JBCheckBox useCacheFileCheckbox = new JBCheckBox("Use cache file");
+	private final JLabel bulkAnalysisBatchSizeLabel = new JLabel("Bulk analysis batch size:");
+	private final JBIntSpinner bulkAnalysisBatchSizeSpinner = new JBIntSpinner(
+		PluginConfigurationBuilder.DEFAULT_BULK_ANALYSIS_BATCH_SIZE,
+		1,
+		Integer.MAX_VALUE,
+		100);
 	
 	private final LocationTableModel locationModel = new LocationTableModel();
 	private final JBTable locationTable = new JBTable(this.locationModel);
@@ -90,8 +111,10 @@ public class PMDConfigPanel extends JPanel
 		configFilePanel.add(this.scopeDropdown, this.createDefaultGridBagConstraints(1, 0, 1));
 		configFilePanel.add(
 			this.wrapWithInfoIcon(
-				this.useSingleThreadCheckbox,
-				"Analysis will be a lot slower but might be more stable"),
+				this.buildThreadPolicyPanel(),
+				"Number of threads used when analyzing multiple files.<br>"
+					+ "Automatic uses more threads the more files are analyzed.<br>"
+					+ "Single files are always analyzed without additional threads"),
 			this.createDefaultGridBagConstraints(2, 0, 2));
 		configFilePanel.add(this.showSuppressedWarningsCheckbox, this.createDefaultGridBagConstraints(0, 1, 2));
 		configFilePanel.add(
@@ -100,15 +123,43 @@ public class PMDConfigPanel extends JPanel
 				"Repeated analysis will be a lot faster.<br>"
 					+ "Only disable this when you have problems with cache file corruption"),
 			this.createDefaultGridBagConstraints(2, 1, 2));
+		configFilePanel.add(this.bulkAnalysisBatchSizeLabel, this.createDefaultGridBagConstraints(0, 2, 1));
+		configFilePanel.add(
+			this.wrapWithInfoIcon(
+				this.bulkAnalysisBatchSizeSpinner,
+				"Maximum number of files that are analyzed together when running a bulk analysis.<br>"
+					+ "Lower values require less memory, higher values are slightly faster"),
+			this.createDefaultGridBagConstraints(1, 2, 1));
 		configFilePanel.add(
 			this.buildRuleFilePanel(),
 			new GridBagConstraints(
-				0, 2, 4, 1, 1.0, 1.0, GridBagConstraints.WEST,
+				0, 3, 4, 1, 1.0, 1.0, GridBagConstraints.WEST,
 				GridBagConstraints.BOTH, COMPONENT_INSETS, 0, 0));
 		
 		return configFilePanel;
 	}
 	
+	private JPanel buildThreadPolicyPanel()
+	{
+		this.threadPolicyDropdown.addItemListener(ev -> this.updateThreadPolicyValueVisibility());
+		
+		final JPanel hl = new JPanel(new HorizontalLayout(5));
+		hl.add(this.threadPolicyLabel);
+		hl.add(this.threadPolicyDropdown);
+		hl.add(this.fixedThreadCountSpinner);
+		hl.add(this.fixedThreadCountMaxLabel);
+		hl.add(this.coreSharePercentSpinner);
+		return hl;
+	}
+	
+	private void updateThreadPolicyValueVisibility()
+	{
+		final Object threadPolicy = this.threadPolicyDropdown.getSelectedItem();
+		this.fixedThreadCountSpinner.setVisible(threadPolicy == ThreadPolicy.FIXED);
+		this.fixedThreadCountMaxLabel.setVisible(threadPolicy == ThreadPolicy.FIXED);
+		this.coreSharePercentSpinner.setVisible(threadPolicy == ThreadPolicy.SHARE_OF_CORES);
+	}
+	
 	private JPanel wrapWithInfoIcon(final JComponent component, final String infoText)
 	{
 		final JBLabel indicator = new JBLabel(AllIcons.General.Information);
@@ -182,9 +233,13 @@ public class PMDConfigPanel extends JPanel
 	public void showPluginConfiguration(@NotNull final PluginConfiguration pluginConfig)
 	{
 		this.scopeDropdown.setSelectedItem(pluginConfig.scanScope());
-		this.useSingleThreadCheckbox.setSelected(pluginConfig.useSingleThread());
+		this.threadPolicyDropdown.setSelectedItem(pluginConfig.threadPolicy());
+		this.fixedThreadCountSpinner.setNumber(pluginConfig.fixedThreadCount());
+		this.coreSharePercentSpinner.setNumber(pluginConfig.coreSharePercent());
+		this.updateThreadPolicyValueVisibility();
 		this.showSuppressedWarningsCheckbox.setSelected(pluginConfig.showSuppressedWarnings());
 		this.useCacheFileCheckbox.setSelected(pluginConfig.useCacheFile());
+		this.bulkAnalysisBatchSizeSpinner.setNumber(pluginConfig.bulkAnalysisBatchSize());
 		this.locationModel.setLocations(new ArrayList<>(pluginConfig.locations()));
 		this.locationModel.setActiveLocations(pluginConfig.getActiveLocations());
 	}
@@ -192,9 +247,14 @@ public class PMDConfigPanel extends JPanel
 	public PluginConfiguration getPluginConfiguration()
 	{
 		return new PluginConfigurationBuilder(this.project)
-			.withUseSingleThread(this.useSingleThreadCheckbox.isSelected())
+			.withThreadPolicy(Objects.requireNonNullElseGet(
+				(ThreadPolicy)this.threadPolicyDropdown.getSelectedItem(),
+				ThreadPolicy::getDefaultValue))
+			.withFixedThreadCount(this.fixedThreadCountSpinner.getNumber())
+			.withCoreSharePercent(this.coreSharePercentSpinner.getNumber())
 			.withShowSuppressedWarnings(this.showSuppressedWarningsCheckbox.isSelected())
 			.withUseCacheFile(this.useCacheFileCheckbox.isSelected())
+			.withBulkAnalysisBatchSize(this.bulkAnalysisBatchSizeSpinner.getNumber())
 			.withScanScope(Objects.requireNonNullElseGet(
 				(ScanScope)this.scopeDropdown.getSelectedItem(),
 				ScanScope::getDefaultValue))
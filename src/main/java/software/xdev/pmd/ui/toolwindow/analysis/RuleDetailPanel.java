@@ -45,6 +45,7 @@ import net.sourceforge.pmd.lang.rule.Rule;
 import net.sourceforge.pmd.lang.rule.RulePriority;
 import net.sourceforge.pmd.lang.rule.RuleTargetSelector;
 import software.xdev.pmd.markdown.RuleDescriptionDocMarkdownToHtmlService;
+import software.xdev.pmd.model.config.DuplicateRuleOrigins;
 import software.xdev.pmd.ui.toolwindow.node.other.RulePriorityIcons;
 import software.xdev.pmd.util.pmd.PMDLanguageFileTypeMapper;
 
@@ -226,6 +227,11 @@ public class RuleDetailPanel extends JBPanel<RuleDetailPanel> implements Disposa
 			new MetaInfoTableEntry<>("Min. language version", Rule::getMinimumLanguageVersion, formatLangVersion),
 			new MetaInfoTableEntry<>("Max. language version", Rule::getMaximumLanguageVersion, formatLangVersion),
 			MetaInfoTableEntry.createForString("RuleSet", Rule::getRuleSetName),
+			// Rules that are contained in multiple rulesets are only reported for the first one
+			new MetaInfoTableEntry<>(
+				"Contained in",
+				this.project.getService(DuplicateRuleOrigins.class)::get,
+				origins -> String.join(", ", origins)),
 			MetaInfoTableEntry.createForString("Rule Class", Rule::getRuleClass),
 			new MetaInfoTableEntry<>("Target Selector", Rule::getTargetSelector, RuleTargetSelector::toString),
 			MetaInfoTableEntry.createForString("since", Rule::getSince)
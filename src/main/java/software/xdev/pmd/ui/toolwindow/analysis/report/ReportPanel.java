@@ -1,6 +1,10 @@
 package software.xdev.pmd.ui.toolwindow.analysis.report;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.actionSystem.AnAction;
@@ -10,17 +14,42 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 
 import software.xdev.pmd.action.ActionFilesAnalyzer;
+import software.xdev.pmd.analysis.NoAnalysisReason;
+import software.xdev.pmd.analysis.PMDAnalysisResult;
 import software.xdev.pmd.currentfile.CombinedPMDAnalysisResult;
 import software.xdev.pmd.ui.toolwindow.analysis.AnalysisPanel;
+import software.xdev.pmd.ui.toolwindow.node.BaseNode;
+import software.xdev.pmd.ui.toolwindow.node.RootNode;
 import software.xdev.pmd.ui.toolwindow.nodehierarchy.TreeNodeHierarchyFactories;
+import software.xdev.pmd.ui.toolwindow.nodehierarchy.TreeNodeMerger;
 
 
 public class ReportPanel extends AnalysisPanel
 {
+	private static final String ANALYSIS_IN_PROGRESS = "Analysis in progress...";
+	
+	private final AtomicBoolean analysisInProgress = new AtomicBoolean();
+	private final AtomicBoolean disposed = new AtomicBoolean();
+	
+	private CombinedPMDAnalysisResult.Accumulator accumulator;
+	
 	public ReportPanel(
 		final Project project,
 		final CombinedPMDAnalysisResult result,
 		final AnActionEvent triggeringEvent)
+	{
+		this(project, triggeringEvent);
+		
+		this.updateTree(result);
+	}
+	
+	/**
+	 * Creates a panel for an analysis that is still running. Results are supplied using
+	 * {@link #appendStreamingResults(List, boolean)}.
+	 */
+	ReportPanel(
+		final Project project,
+		final AnActionEvent triggeringEvent)
 	{
 		super(project, TreeNodeHierarchyFactories.BY_RULE);
 		
@@ -30,7 +59,100 @@ public class ReportPanel extends AnalysisPanel
 			this.toolbarActionGroup.add(new ReRunAction(triggeringEvent));
 		}
 		
-		this.updateTree(result);
+		this.analysisInProgress.set(true);
+		this.mainSplit.setFirstComponent(this.createNoAnalysisReasonPanel(ANALYSIS_IN_PROGRESS));
+	}
+	
+	/**
+	 * Appends the results to the displayed ones.
+	 * <p>
+	 * Only the nodes for the given results are built and merged into the displayed tree, so that the effort stays the
+	 * same for every update and the expansion state of the tree is kept.
+	 * </p>
+	 */
+	void appendStreamingResults(final List<PMDAnalysisResult> results, final boolean analysisFinished)
+	{
+		ApplicationManager.getApplication().executeOnPooledThread(() ->
+		{
+			this.updateTreeLock.lock();
+			this.treeUpdateInProgress = true;
+			try
+			{
+				if(this.accumulator == null)
+				{
+					this.accumulator = new CombinedPMDAnalysisResult.Accumulator(this.project);
+				}
+				this.accumulator.add(results);
+				this.result = this.accumulator.toResult();
+				if(analysisFinished)
+				{
+					this.analysisInProgress.set(false);
+				}
+				
+				final RootNode deltaRootNode = new RootNode();
+				this.currentHierarchyBuilderFactory.createBuilder()
+					.apply(CombinedPMDAnalysisResult.combine(results))
+					.build()
+					.forEach(deltaRootNode::add);
+				deltaRootNode.executeRecursive(BaseNode::update);
+				
+				ApplicationManager.getApplication().invokeAndWait(() -> this.appendInUI(deltaRootNode));
+			}
+			finally
+			{
+				this.treeUpdateInProgress = false;
+				this.updateTreeLock.unlock();
+			}
+		});
+	}
+	
+	private void appendInUI(final RootNode deltaRootNode)
+	{
+		if(this.disposed.get())
+		{
+			return;
+		}
+		
+		if(this.result.isEmpty())
+		{
+			this.updateTreeInUI(
+				null,
+				this.result.noAnalysisReasons().stream()
+					.findFirst()
+					.map(NoAnalysisReason::getDisplayName)
+					.orElse(null));
+		}
+		else if(this.mainSplit.getFirstComponent() != this.treeScrollPane
+			|| !(this.treeModel.getRoot() instanceof final RootNode rootNode))
+		{
+			this.updateTreeInUI(deltaRootNode, null);
+		}
+		else
+		{
+			TreeNodeMerger.merge(this.treeModel, rootNode, deltaRootNode);
+		}
+	}
+	
+	@Override
+	protected void updateTreeInUI(@Nullable final RootNode rootNode, @Nullable final String noAnalysisReason)
+	{
+		super.updateTreeInUI(
+			rootNode,
+			rootNode == null && noAnalysisReason == null && this.analysisInProgress.get()
+				? ANALYSIS_IN_PROGRESS
+				: noAnalysisReason);
+	}
+	
+	boolean isDisposed()
+	{
+		return this.disposed.get();
+	}
+	
+	@Override
+	public void dispose()
+	{
+		this.disposed.set(true);
+		super.dispose();
 	}
 	
 	static class ReRunAction extends AnAction
@@ -3,6 +3,7 @@ package software.xdev.pmd.ui.toolwindow.analysis.report;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -31,22 +32,41 @@ public class ReportViewManager
 	}
 	
 	public void displayNewReport(final CombinedPMDAnalysisResult result, final AnActionEvent triggeringEvent)
+	{
+		this.displayInToolWindow(() -> new ReportPanel(this.project, result, triggeringEvent));
+	}
+	
+	/**
+	 * Displays a report for an analysis that is still running.
+	 *
+	 * @return the sink where the results of the analysis should be sent to
+	 */
+	public StreamingReportSink displayNewStreamingReport(final AnActionEvent triggeringEvent)
+	{
+		final StreamingReportSink sink = new StreamingReportSink();
+		this.displayInToolWindow(() -> {
+			final ReportPanel reportPanel = new ReportPanel(this.project, triggeringEvent);
+			sink.attach(reportPanel);
+			return reportPanel;
+		});
+		return sink;
+	}
+	
+	private void displayInToolWindow(final Supplier<ReportPanel> reportPanelSupplier)
 	{
 		ApplicationManager.getApplication().invokeLater(() ->
 			Optional.ofNullable(ToolWindowManager.getInstance(this.project)
 					.getToolWindow(PMDToolWindowFactory.TOOL_WINDOW_ID))
-				.ifPresent(toolWindow -> this.displayNewReportInToolWindow(result, triggeringEvent, toolWindow)));
+				.ifPresent(toolWindow -> this.displayNewReportInToolWindow(reportPanelSupplier.get(), toolWindow)));
 	}
 	
 	private void displayNewReportInToolWindow(
-		final CombinedPMDAnalysisResult result,
-		final AnActionEvent triggeringEvent,
+		final ReportPanel reportPanel,
 		final ToolWindow toolWindow)
 	{
 		toolWindow.activate(null);
 		
 		final ContentManager contentManager = toolWindow.getContentManager();
-		final ReportPanel reportPanel = new ReportPanel(this.project, result, triggeringEvent);
 		final Content reportContent = contentManager.getFactory().createContent(
 			reportPanel,
 			"Report " + LocalDateTime.now().format(REPORT_DATE_FORMATTER),
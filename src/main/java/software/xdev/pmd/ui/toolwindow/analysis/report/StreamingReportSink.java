@@ -0,0 +1,121 @@
+package software.xdev.pmd.ui.toolwindow.analysis.report;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+
+import software.xdev.pmd.analysis.PMDAnalysisResult;
+
+
+/**
+ * Receives the results of a running analysis and forwards them in batches to a {@link ReportPanel}.
+ * <p>
+ * Every update appends the results received since the last update to the tree of the panel. To keep the number of
+ * tree changes low for big analyses the interval between the updates is doubled after every update (up to
+ * {@link #MAX_UPDATE_INTERVAL_MS}).
+ * </p>
+ */
+public class StreamingReportSink implements Consumer<PMDAnalysisResult>
+{
+	private static final long MIN_UPDATE_INTERVAL_MS = 1_000;
+	private static final long MAX_UPDATE_INTERVAL_MS = 10_000;
+	
+	private final Object lock = new Object();
+	
+	private List<PMDAnalysisResult> pending = new ArrayList<>();
+	private ReportPanel panel;
+	private boolean updateScheduled;
+	private boolean finished;
+	private long updateIntervalMs = MIN_UPDATE_INTERVAL_MS;
+	
+	@Override
+	public void accept(final PMDAnalysisResult result)
+	{
+		synchronized(this.lock)
+		{
+			this.pending.add(result);
+			this.scheduleUpdateIfRequired();
+		}
+	}
+	
+	/**
+	 * Called once all analyses are finished.
+	 *
+	 * @param results The results returned by the analyses, e.g. containing the reason why no analysis was executed
+	 */
+	public void finish(final Collection<PMDAnalysisResult> results)
+	{
+		synchronized(this.lock)
+		{
+			this.pending.addAll(results);
+			this.finished = true;
+		}
+		this.update();
+	}
+	
+	void attach(final ReportPanel panel)
+	{
+		synchronized(this.lock)
+		{
+			this.panel = panel;
+			this.scheduleUpdateIfRequired();
+		}
+		if(this.isFinished())
+		{
+			this.update();
+		}
+	}
+	
+	private boolean isFinished()
+	{
+		synchronized(this.lock)
+		{
+			return this.finished;
+		}
+	}
+	
+	private void scheduleUpdateIfRequired()
+	{
+		if(this.updateScheduled || this.finished || this.panel == null)
+		{
+			return;
+		}
+		
+		this.updateScheduled = true;
+		AppExecutorUtil.getAppScheduledExecutorService().schedule(
+			this::update,
+			this.updateIntervalMs,
+			TimeUnit.MILLISECONDS);
+		this.updateIntervalMs = Math.min(this.updateIntervalMs * 2, MAX_UPDATE_INTERVAL_MS);
+	}
+	
+	private void update()
+	{
+		final ReportPanel targetPanel;
+		final List<PMDAnalysisResult> delta;
+		final boolean analysisFinished;
+		synchronized(this.lock)
+		{
+			this.updateScheduled = false;
+			// Keep the results until there is a panel to show them
+			if(this.panel == null)
+			{
+				return;
+			}
+			
+			targetPanel = this.panel;
+			delta = this.pending;
+			this.pending = new ArrayList<>();
+			analysisFinished = this.finished;
+		}
+		
+		if(!targetPanel.isDisposed())
+		{
+			targetPanel.appendStreamingResults(delta, analysisFinished);
+		}
+	}
+}
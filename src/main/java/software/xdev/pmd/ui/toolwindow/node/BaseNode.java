@@ -7,6 +7,7 @@ import java.util.stream.Stream;
 import javax.swing.tree.DefaultMutableTreeNode;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import one.util.streamex.StreamEx;
 import software.xdev.pmd.ui.toolwindow.node.has.HasNavigatable;
@@ -44,4 +45,14 @@ public abstract class BaseNode extends DefaultMutableTreeNode implements HasNavi
 	{
 		// Default - NOOP
 	}
+	
+	/**
+	 * @return a key that identifies this node among its siblings, so that nodes of later (incremental) results can be
+	 * merged into it; <code>null</code> if the node should never be merged
+	 */
+	@Nullable
+	public Object mergeKey()
+	{
+		return null;
+	}
 }
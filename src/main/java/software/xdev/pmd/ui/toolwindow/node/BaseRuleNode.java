@@ -38,4 +38,10 @@ public abstract class BaseRuleNode extends BaseNode implements HasRule
 	{
 		return this.rule;
 	}
+	
+	@Override
+	public Object mergeKey()
+	{
+		return this.rule;
+	}
 }
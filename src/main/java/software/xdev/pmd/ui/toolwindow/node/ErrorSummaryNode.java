@@ -30,6 +30,13 @@ public class ErrorSummaryNode extends BaseNode implements HasErrorCount
 		this.errorCount = this.childrenSum(HasErrorCount.class, HasErrorCount::errorCount);
 	}
 	
+	@Override
+	public Object mergeKey()
+	{
+		// There is only one per parent
+		return this.getClass();
+	}
+	
 	@Override
 	public void render(@NotNull final NodeCellRenderer renderer)
 	{
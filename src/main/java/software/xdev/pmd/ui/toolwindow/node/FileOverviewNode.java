@@ -42,6 +42,17 @@ public class FileOverviewNode extends BaseHasViolationSuppressedErrorNode
 			+ " (" + this.violationsSuppressedErrorToString() + ")");
 	}
 	
+	public String getFileName()
+	{
+		return this.psiFile.getName();
+	}
+	
+	@Override
+	public Object mergeKey()
+	{
+		return this.psiFile.getVirtualFile();
+	}
+	
 	@Override
 	public Supplier<FilePosition> filePositionSupplier()
 	{
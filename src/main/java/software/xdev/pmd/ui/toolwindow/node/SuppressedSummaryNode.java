@@ -20,6 +20,13 @@ public class SuppressedSummaryNode extends BaseNode implements HasSuppressedViol
 			this.childrenSum(HasSuppressedViolationCount.class, HasSuppressedViolationCount::suppressedCount);
 	}
 	
+	@Override
+	public Object mergeKey()
+	{
+		// There is only one per parent
+		return this.getClass();
+	}
+	
 	@Override
 	public void render(@NotNull final NodeCellRenderer renderer)
 	{
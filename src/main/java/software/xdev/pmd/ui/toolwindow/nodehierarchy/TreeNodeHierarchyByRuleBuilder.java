@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -91,7 +92,12 @@ public class TreeNodeHierarchyByRuleBuilder extends AbstractTreeNodeHierarchyByB
 					e -> e.getValue().entrySet().stream()
 						.sorted(Comparator.comparing(e2 -> e2.getKey().getFileName()))
 						.map(e2 -> {
-							final PsiFile psiFile = this.result.fileIdPsiFiles().get(e2.getKey());
+							final PsiFile psiFile = this.fileIdPsiFiles.get(e2.getKey());
+							// The file might have been deleted in the meantime
+							if(psiFile == null)
+							{
+								return null;
+							}
 							final FileOverviewNode fileOverviewNode =
 								new FileOverviewWithRuleNode(psiFile, e.getKey());
 							
@@ -103,6 +109,7 @@ public class TreeNodeHierarchyByRuleBuilder extends AbstractTreeNodeHierarchyByB
 							
 							return Map.entry(fileOverviewNode, violationNodes);
 						})
+						.filter(Objects::nonNull)
 						.collect(Collectors.toMap(
 							Map.Entry::getKey,
 							Map.Entry::getValue,
@@ -0,0 +1,115 @@
+package software.xdev.pmd.ui.toolwindow.nodehierarchy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import javax.swing.tree.DefaultTreeModel;
+
+import software.xdev.pmd.ui.toolwindow.node.BaseNode;
+import software.xdev.pmd.ui.toolwindow.node.BaseRuleNode;
+import software.xdev.pmd.ui.toolwindow.node.ErrorSummaryNode;
+import software.xdev.pmd.ui.toolwindow.node.FileOverviewNode;
+import software.xdev.pmd.ui.toolwindow.node.SuppressedSummaryNode;
+
+
+/**
+ * Merges a tree that was built for additional results into an already displayed tree.
+ * <p>
+ * Nodes with the same class and {@link BaseNode#mergeKey()} are merged, all others are inserted in the order the
+ * {@link TreeNodeHierarchyBuilderFactory builders} use. Only the changed nodes are reported to the model, so that the
+ * expansion and selection of the tree are kept.
+ * </p>
+ * Must be called on the EDT.
+ */
+public final class TreeNodeMerger
+{
+	private static final Comparator<BaseNode> SIBLING_ORDER = Comparator
+		.comparingInt(TreeNodeMerger::rank)
+		.thenComparing(TreeNodeMerger::compareWithinRank);
+	
+	private TreeNodeMerger()
+	{
+	}
+	
+	public static void merge(final DefaultTreeModel treeModel, final BaseNode target, final BaseNode source)
+	{
+		final List<BaseNode> sourceChildren = new ArrayList<>();
+		for(int i = 0; i < source.getChildCount(); i++)
+		{
+			sourceChildren.add((BaseNode)source.getChildAt(i));
+		}
+		
+		for(final BaseNode child : sourceChildren)
+		{
+			final BaseNode existing = findMergeable(target, child);
+			if(existing != null)
+			{
+				merge(treeModel, existing, child);
+			}
+			else
+			{
+				treeModel.insertNodeInto(child, target, insertIndex(target, child));
+			}
+		}
+		
+		target.update();
+		treeModel.nodeChanged(target);
+	}
+	
+	private static BaseNode findMergeable(final BaseNode target, final BaseNode node)
+	{
+		final Object mergeKey = node.mergeKey();
+		if(mergeKey == null)
+		{
+			return null;
+		}
+		for(int i = 0; i < target.getChildCount(); i++)
+		{
+			if(target.getChildAt(i) instanceof final BaseNode child
+				&& child.getClass() == node.getClass()
+				&& Objects.equals(child.mergeKey(), mergeKey))
+			{
+				return child;
+			}
+		}
+		return null;
+	}
+	
+	private static int insertIndex(final BaseNode target, final BaseNode node)
+	{
+		for(int i = 0; i < target.getChildCount(); i++)
+		{
+			if(target.getChildAt(i) instanceof final BaseNode child && SIBLING_ORDER.compare(child, node) > 0)
+			{
+				return i;
+			}
+		}
+		return target.getChildCount();
+	}
+	
+	private static int rank(final BaseNode node)
+	{
+		if(node instanceof ErrorSummaryNode)
+		{
+			return 2;
+		}
+		return node instanceof SuppressedSummaryNode ? 1 : 0;
+	}
+	
+	private static int compareWithinRank(final BaseNode left, final BaseNode right)
+	{
+		if(left instanceof final BaseRuleNode leftRule && right instanceof final BaseRuleNode rightRule)
+		{
+			return Comparator.<BaseRuleNode>comparingInt(n -> n.getRule().getPriority().getPriority())
+				.thenComparing(n -> n.getRule().getName())
+				.compare(leftRule, rightRule);
+		}
+		if(left instanceof final FileOverviewNode leftFile && right instanceof final FileOverviewNode rightFile)
+		{
+			return leftFile.getFileName().compareTo(rightFile.getFileName());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,242 @@
+package software.xdev.pmd.analysis.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.intellij.openapi.util.SimpleModificationTracker;
+
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.document.FileId;
+import net.sourceforge.pmd.lang.document.TextDocument;
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleSetLoader;
+import net.sourceforge.pmd.lang.rule.internal.RuleSets;
+import net.sourceforge.pmd.reporting.FileAnalysisListener;
+import software.xdev.pmd.analysis.cache.AnalysisCacheJournal.RuleKey;
+import software.xdev.pmd.analysis.cache.AnalysisCacheJournal.Violation;
+
+
+class WriteBehindAnalysisCacheTest
+{
+	private static final String RULE_A = "category/java/bestpractices.xml/UnusedLocalVariable";
+	private static final String RULE_B = "category/java/errorprone.xml/EmptyCatchBlock";
+	
+	@TempDir
+	Path tempDir;
+	
+	private Path cacheFile;
+	private URLClassLoader classLoader;
+	private final SimpleModificationTracker classpathModificationTracker = new SimpleModificationTracker();
+	
+	@BeforeEach
+	void setUp()
+	{
+		this.cacheFile = this.tempDir.resolve("cache.bin");
+		this.classLoader = new URLClassLoader(new URL[0], null);
+	}
+	
+	@AfterEach
+	void tearDown() throws IOException
+	{
+		this.classLoader.close();
+	}
+	
+	@Test
+	@DisplayName("Results of old rules are gone after the rules changed")
+	void rulesChanged() throws IOException
+	{
+		final RuleSets rulesA = ruleSets(RULE_A);
+		final RuleSets rulesB = ruleSets(RULE_B);
+		final TextDocument a = this.document("A.java", "class A {}");
+		final TextDocument b = this.document("B.java", "class B {}");
+		
+		final WriteBehindAnalysisCache cache = this.newCache();
+		assertEquals(List.of(a, b), this.analyze(cache, rulesA, a, b));
+		flush(cache);
+		
+		// Same (long-lived) instance, rules changed, only B is analyzed
+		assertEquals(List.of(b), this.analyze(cache, rulesB, b));
+		flush(cache);
+		
+		final WriteBehindAnalysisCache reloaded = this.newCache();
+		assertEquals(List.of(a), this.analyze(reloaded, rulesB, a, b));
+		assertEquals(
+			List.of(RuleKey.of(rulesB.getAllRules().iterator().next())),
+			reloaded.getCachedViolations(b).stream().map(v -> RuleKey.of(v.getRule())).toList());
+		
+		assertEquals(List.of(a, b), this.analyze(this.newCache(), rulesA, a, b));
+	}
+	
+	@Test
+	@DisplayName("Results of other files survive the analysis of a single file")
+	void warmResultsSurvive() throws IOException
+	{
+		final RuleSets rules = ruleSets(RULE_A);
+		final TextDocument a = this.document("A.java", "class A {}");
+		final TextDocument b = this.document("B.java", "class B {}");
+		
+		final WriteBehindAnalysisCache cache = this.newCache();
+		assertEquals(List.of(a, b), this.analyze(cache, rules, a, b));
+		flush(cache);
+		
+		// e.g. after a restart only A is analyzed
+		final TextDocument changedA = this.document("A.java", "class A { int x; }");
+		final WriteBehindAnalysisCache restarted = this.newCache();
+		assertEquals(List.of(changedA), this.analyze(restarted, rules, changedA));
+		flush(restarted);
+		
+		assertEquals(List.of(), this.analyze(this.newCache(), rules, changedA, b));
+	}
+	
+	@Test
+	@DisplayName("Changes are appended to the cache file")
+	void appended() throws IOException
+	{
+		final RuleSets rules = ruleSets(RULE_A);
+		final TextDocument a = this.document("A.java", "class A {}");
+		final TextDocument b = this.document("B.java", "class B {}");
+		
+		final WriteBehindAnalysisCache cache = this.newCache();
+		assertEquals(List.of(a), this.analyze(cache, rules, a));
+		flush(cache);
+		final long lengthAfterFirstFlush = Files.size(this.cacheFile);
+		
+		assertEquals(List.of(b), this.analyze(cache, rules, a, b));
+		flush(cache);
+		
+		assertTrue(Files.size(this.cacheFile) > lengthAfterFirstFlush);
+		assertEquals(List.of(), this.analyze(this.newCache(), rules, a, b));
+	}
+	
+	@Test
+	@DisplayName("An incompletely written entry is ignored and overwritten")
+	void truncatedEntry() throws IOException
+	{
+		final RuleSets rules = ruleSets(RULE_A);
+		final TextDocument a = this.document("A.java", "class A {}");
+		final TextDocument b = this.document("B.java", "class B {}");
+		
+		final WriteBehindAnalysisCache cache = this.newCache();
+		assertEquals(List.of(a), this.analyze(cache, rules, a));
+		flush(cache);
+		
+		// The IDE was killed while an entry was appended
+		Files.write(this.cacheFile, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+		
+		final WriteBehindAnalysisCache restarted = this.newCache();
+		assertEquals(List.of(b), this.analyze(restarted, rules, a, b));
+		flush(restarted);
+		
+		assertEquals(List.of(), this.analyze(this.newCache(), rules, a, b));
+	}
+	
+	private WriteBehindAnalysisCache newCache()
+	{
+		return new WriteBehindAnalysisCache(
+			this.cacheFile,
+			new LockContentionMetric(),
+			this.classpathModificationTracker);
+	}
+	
+	private static void flush(final WriteBehindAnalysisCache cache)
+	{
+		cache.persist();
+		cache.flush(true);
+	}
+	
+	private TextDocument document(final String fileName, final String content) throws IOException
+	{
+		final Path file = this.tempDir.resolve(fileName);
+		// The results of deleted files are dropped when the cache is rewritten
+		Files.writeString(file, content);
+		return TextDocument.readOnlyString(
+			content,
+			FileId.fromPath(file),
+			LanguageRegistry.PMD.getLanguageById("java").getDefaultVersion());
+	}
+	
+	/**
+	 * Simulates an analysis of the documents that reports one violation per rule.
+	 *
+	 * @return the documents that were not up to date
+	 */
+	private List<TextDocument> analyze(
+		final WriteBehindAnalysisCache cache,
+		final RuleSets ruleSets,
+		final TextDocument... documents)
+	{
+		assertTrue(cache.tryAcquire(0));
+		try
+		{
+			cache.checkValidity(ruleSets, this.classLoader, List.of());
+			
+			final List<TextDocument> analyzed = new ArrayList<>();
+			for(final TextDocument document : documents)
+			{
+				if(!cache.isUpToDate(document))
+				{
+					analyzed.add(document);
+					reportViolations(cache, document, ruleSets);
+				}
+			}
+			return analyzed;
+		}
+		finally
+		{
+			cache.release();
+		}
+	}
+	
+	private static void reportViolations(
+		final WriteBehindAnalysisCache cache,
+		final TextDocument document,
+		final RuleSets ruleSets)
+	{
+		try(final FileAnalysisListener listener = cache.startFileAnalysis(document))
+		{
+			for(final Rule rule : ruleSets.getAllRules())
+			{
+				listener.onRuleViolation(
+					new Violation(RuleKey.of(rule), "violation", 1, 1, 1, 2, Map.of())
+						.toRuleViolation(rule, document.getFileId()));
+			}
+		}
+		catch(final Exception ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+	
+	private static RuleSets ruleSets(final String ruleReference)
+	{
+		return new RuleSets(new RuleSetLoader().loadFromString(
+			"test.xml",
+			"""
+				<?xml version="1.0"?>
+				<ruleset name="test"
+					xmlns="http://pmd.sourceforge.net/ruleset/2.0.0"
+					xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+					xsi:schemaLocation="http://pmd.sourceforge.net/ruleset/2.0.0 \
+				https://pmd.sourceforge.io/ruleset_2_0_0.xsd">
+					<description>test</description>
+					<rule ref="%s"/>
+				</ruleset>
+				""".formatted(ruleReference)));
+	}
+}
@@ -0,0 +1,100 @@
+package software.xdev.pmd.analysis.classpath;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class ClasspathDirectoryFingerprintsTest
+{
+	@TempDir
+	Path tempDir;
+	
+	private final List<Path> fingerprintedFiles = new ArrayList<>();
+	private final ClasspathDirectoryFingerprints fingerprints =
+		new ClasspathDirectoryFingerprints((directory, file) -> {
+			this.fingerprintedFiles.add(file);
+			return file.toString().endsWith(".class") ? (long)Files.readString(file).hashCode() : null;
+		});
+	
+	@Test
+	@DisplayName("Only changed files are fingerprinted again")
+	void changedFile() throws IOException
+	{
+		final Path a = write("pkg/A.class", "a");
+		write("pkg/B.class", "b");
+		final long initial = this.fingerprints.fingerprint(this.tempDir);
+		assertEquals(2, this.fingerprintedFiles.size());
+		
+		this.fingerprintedFiles.clear();
+		assertEquals(initial, this.fingerprints.fingerprint(this.tempDir));
+		assertEquals(List.of(), this.fingerprintedFiles);
+		
+		Files.writeString(a, "changed");
+		this.fingerprints.fileChanged(a);
+		assertNotEquals(initial, this.fingerprints.fingerprint(this.tempDir));
+		assertEquals(List.of(a), this.fingerprintedFiles);
+		
+		Files.writeString(a, "a");
+		this.fingerprints.fileChanged(a);
+		assertEquals(initial, this.fingerprints.fingerprint(this.tempDir));
+	}
+	
+	@Test
+	@DisplayName("Created and deleted files change the fingerprint")
+	void createdAndDeletedFile() throws IOException
+	{
+		write("pkg/A.class", "a");
+		final long initial = this.fingerprints.fingerprint(this.tempDir);
+		
+		final Path b = write("pkg/B.class", "b");
+		this.fingerprints.fileChanged(b);
+		assertNotEquals(initial, this.fingerprints.fingerprint(this.tempDir));
+		
+		Files.delete(b);
+		this.fingerprints.fileChanged(b);
+		assertEquals(initial, this.fingerprints.fingerprint(this.tempDir));
+	}
+	
+	@Test
+	@DisplayName("A changed directory is walked again")
+	void changedDirectory() throws IOException
+	{
+		write("pkg/A.class", "a");
+		final long initial = this.fingerprints.fingerprint(this.tempDir);
+		
+		// Renamed package
+		Files.move(this.tempDir.resolve("pkg"), this.tempDir.resolve("other"));
+		this.fingerprints.directoryChanged(this.tempDir.resolve("pkg"));
+		this.fingerprints.directoryChanged(this.tempDir.resolve("other"));
+		assertNotEquals(initial, this.fingerprints.fingerprint(this.tempDir));
+	}
+	
+	@Test
+	@DisplayName("Files that are not part of the classpath are ignored")
+	void ignoredFile() throws IOException
+	{
+		write("pkg/A.class", "a");
+		final long initial = this.fingerprints.fingerprint(this.tempDir);
+		
+		final Path resource = write("pkg/readme.txt", "text");
+		this.fingerprints.fileChanged(resource);
+		assertEquals(initial, this.fingerprints.fingerprint(this.tempDir));
+	}
+	
+	private Path write(final String relativePath, final String content) throws IOException
+	{
+		final Path file = this.tempDir.resolve(relativePath);
+		Files.createDirectories(file.getParent());
+		return Files.writeString(file, content);
+	}
+}
@@ -0,0 +1,42 @@
+package software.xdev.pmd.analysis.classpath;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+
+class ClasspathModificationTrackerTest
+{
+	private final ClasspathModificationTracker.ClasspathRoots roots = ClasspathModificationTracker.ClasspathRoots.of(
+		List.of("/project/module/out/classes", "/repo/lib/a.jar", "/repo/lib/b.jar"));
+	
+	@Test
+	@DisplayName("Paths inside of a root are detected")
+	void inside()
+	{
+		assertTrue(this.roots.isInside("/project/module/out/classes"));
+		assertTrue(this.roots.isInside("/project/module/out/classes/pkg/A.class"));
+		assertTrue(this.roots.isInside("/repo/lib/a.jar"));
+		
+		assertFalse(this.roots.isInside("/project/module/out/classes2/A.class"));
+		assertFalse(this.roots.isInside("/project/module/src/A.class"));
+		assertFalse(this.roots.isInside("/repo/lib/c.jar"));
+	}
+	
+	@Test
+	@DisplayName("Directories that contain a root are detected")
+	void ancestor()
+	{
+		assertTrue(this.roots.isAncestor("/project"));
+		assertTrue(this.roots.isAncestor("/project/module/out"));
+		assertTrue(this.roots.isAncestor("/repo/lib"));
+		
+		assertFalse(this.roots.isAncestor("/project/module/out/classes"));
+		assertFalse(this.roots.isAncestor("/project/module/src"));
+		assertFalse(this.roots.isAncestor("/other"));
+	}
+}
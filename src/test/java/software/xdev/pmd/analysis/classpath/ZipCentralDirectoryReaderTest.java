@@ -0,0 +1,110 @@
+package software.xdev.pmd.analysis.classpath;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class ZipCentralDirectoryReaderTest
+{
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	@DisplayName("Only class files are read")
+	void onlyClassFiles() throws IOException
+	{
+		final Path jar = this.createZip(
+			"a.jar",
+			List.of("META-INF/MANIFEST.MF", "a/", "a/A.class", "a/B.class", "a/readme.txt", "a/C.class"),
+			"// comment");
+		
+		final int[] crcs = ZipCentralDirectoryReader.readFromCentralDirectory(jar.toFile());
+		
+		assertEquals(3, crcs.length);
+		assertArrayEquals(ZipCentralDirectoryReader.readWithZipFile(jar.toFile()), crcs);
+	}
+	
+	@Test
+	@DisplayName("Order of entries doesn't matter")
+	void orderIndependent() throws IOException
+	{
+		final Path jar1 = this.createZip("1.jar", List.of("A.class", "B.class", "c/C.class"), null);
+		final Path jar2 = this.createZip("2.jar", List.of("c/C.class", "B.class", "A.class"), null);
+		
+		assertArrayEquals(
+			ZipCentralDirectoryReader.readClassCrcs(jar1.toFile()),
+			ZipCentralDirectoryReader.readClassCrcs(jar2.toFile()));
+	}
+	
+	@Test
+	@DisplayName("ZIP64")
+	void zip64() throws IOException
+	{
+		// More than 65535 entries require ZIP64
+		final List<String> names = new ArrayList<>();
+		for(int i = 0; i < 70_000; i++)
+		{
+			names.add("p/C" + i + ".class");
+		}
+		final Path jar = this.createZip("zip64.jar", names, null);
+		
+		final int[] crcs = ZipCentralDirectoryReader.readFromCentralDirectory(jar.toFile());
+		
+		assertEquals(names.size(), crcs.length);
+		assertArrayEquals(ZipCentralDirectoryReader.readWithZipFile(jar.toFile()), crcs);
+	}
+	
+	@Test
+	@DisplayName("Fallback for data before the archive")
+	void fallbackForPrefixedArchive() throws IOException
+	{
+		final Path jar = this.createZip("plain.jar", List.of("A.class", "B.class"), null);
+		final Path prefixed = this.tempDir.resolve("prefixed.jar");
+		try(final OutputStream os = Files.newOutputStream(prefixed))
+		{
+			os.write("#!/bin/sh\nexec java -jar \"$0\"\n".getBytes(StandardCharsets.US_ASCII));
+			os.write(Files.readAllBytes(jar));
+		}
+		
+		assertArrayEquals(
+			ZipCentralDirectoryReader.readClassCrcs(jar.toFile()),
+			ZipCentralDirectoryReader.readClassCrcs(prefixed.toFile()));
+	}
+	
+	private Path createZip(final String fileName, final List<String> entryNames, final String comment)
+		throws IOException
+	{
+		final Path zip = this.tempDir.resolve(fileName);
+		try(final ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip)))
+		{
+			for(final String name : entryNames)
+			{
+				zos.putNextEntry(new ZipEntry(name));
+				if(!name.endsWith("/"))
+				{
+					zos.write(name.getBytes(StandardCharsets.UTF_8));
+				}
+				zos.closeEntry();
+			}
+			if(comment != null)
+			{
+				zos.setComment(comment);
+			}
+		}
+		return zip;
+	}
+}
@@ -0,0 +1,113 @@
+package software.xdev.pmd.analysis.classpath;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class ZipFingerprintStoreTest
+{
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	@DisplayName("Fingerprints survive a restart")
+	void reopened()
+	{
+		final Path file = this.tempDir.resolve("fingerprints.bin");
+		final ZipFingerprintStore store = new ZipFingerprintStore(file);
+		store.put("a.jar", fingerprint(1));
+		store.put("b.jar", fingerprint(2));
+		// Supersedes the first entry
+		store.put("a.jar", fingerprint(3));
+		
+		final ZipFingerprintStore reopened = new ZipFingerprintStore(file);
+		assertFingerprint(3, reopened.get("a.jar"));
+		assertFingerprint(2, reopened.get("b.jar"));
+		assertNull(reopened.get("c.jar"));
+	}
+	
+	@Test
+	@DisplayName("An incompletely written entry is removed and new entries stay readable")
+	void truncatedEntry() throws IOException
+	{
+		final Path file = this.tempDir.resolve("fingerprints.bin");
+		final ZipFingerprintStore store = new ZipFingerprintStore(file);
+		store.put("a.jar", fingerprint(1));
+		store.put("b.jar", fingerprint(2));
+		final long completeSize = Files.size(file);
+		
+		// The IDE was killed while an entry was appended
+		Files.write(file, new byte[]{0, 0, 0, 5, 'c', '.'}, StandardOpenOption.APPEND);
+		
+		final ZipFingerprintStore restarted = new ZipFingerprintStore(file);
+		assertFingerprint(1, restarted.get("a.jar"));
+		assertFingerprint(2, restarted.get("b.jar"));
+		assertNull(restarted.get("c.jar"));
+		assertEquals(completeSize, Files.size(file));
+		restarted.put("c.jar", fingerprint(3));
+		
+		final ZipFingerprintStore reopened = new ZipFingerprintStore(file);
+		assertFingerprint(1, reopened.get("a.jar"));
+		assertFingerprint(2, reopened.get("b.jar"));
+		assertFingerprint(3, reopened.get("c.jar"));
+	}
+	
+	@Test
+	@DisplayName("Files with an incompatible format are discarded")
+	void incompatibleFormat() throws IOException
+	{
+		final Path file = this.tempDir.resolve("fingerprints.bin");
+		Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+		
+		final ZipFingerprintStore store = new ZipFingerprintStore(file);
+		assertNull(store.get("a.jar"));
+		store.put("a.jar", fingerprint(1));
+		
+		assertFingerprint(1, new ZipFingerprintStore(file).get("a.jar"));
+	}
+	
+	@Test
+	@DisplayName("The file is closed when disposed and reopened when used again")
+	void disposed() throws IOException
+	{
+		final Path file = this.tempDir.resolve("fingerprints.bin");
+		final ZipFingerprintStore store = new ZipFingerprintStore(file);
+		store.put("a.jar", fingerprint(1));
+		store.dispose();
+		
+		// Possible as the file is no longer opened (files are locked on Windows)
+		Files.move(file, this.tempDir.resolve("moved.bin"));
+		Files.move(this.tempDir.resolve("moved.bin"), file);
+		
+		assertFingerprint(1, store.get("a.jar"));
+		store.put("b.jar", fingerprint(2));
+		store.dispose();
+		assertFingerprint(2, new ZipFingerprintStore(file).get("b.jar"));
+	}
+	
+	private static ZipFingerprintStore.Fingerprint fingerprint(final int value)
+	{
+		return new ZipFingerprintStore.Fingerprint(value, value * 10L, new byte[]{(byte)value, 0, 1}, value);
+	}
+	
+	private static void assertFingerprint(final int expectedValue, final ZipFingerprintStore.Fingerprint actual)
+	{
+		assertNotNull(actual);
+		final ZipFingerprintStore.Fingerprint expected = fingerprint(expectedValue);
+		assertEquals(expected.length(), actual.length());
+		assertEquals(expected.lastModified(), actual.lastModified());
+		assertEquals(expected.checksumUpdateEntries(), actual.checksumUpdateEntries());
+		assertArrayEquals(expected.checksumUpdateData(), actual.checksumUpdateData());
+	}
+}
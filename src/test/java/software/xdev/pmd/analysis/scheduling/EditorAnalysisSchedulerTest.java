@@ -0,0 +1,128 @@
+package software.xdev.pmd.analysis.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+
+import software.xdev.pmd.analysis.NoAnalysisReason;
+import software.xdev.pmd.analysis.PMDAnalysisResult;
+
+
+class EditorAnalysisSchedulerTest
+{
+	private static final long TIMEOUT_S = 10;
+	
+	private final EditorAnalysisScheduler scheduler = new EditorAnalysisScheduler();
+	private final VirtualFile file = new LightVirtualFile("A.java");
+	
+	@Test
+	@DisplayName("A pending request is superseded by a newer one and receives no result")
+	void superseded() throws Exception
+	{
+		final CountDownLatch firstStarted = new CountDownLatch(1);
+		final CountDownLatch finishFirst = new CountDownLatch(1);
+		final AtomicInteger executedAnalyses = new AtomicInteger();
+		
+		final PMDAnalysisResult firstResult = result();
+		final RunningRequest first = this.schedule(() -> {
+			executedAnalyses.incrementAndGet();
+			firstStarted.countDown();
+			await(finishFirst);
+			return firstResult;
+		});
+		await(firstStarted);
+		
+		// Waits until the first analysis is finished
+		final RunningRequest second = this.schedule(() -> {
+			executedAnalyses.incrementAndGet();
+			return result();
+		});
+		awaitWaiting(second.thread());
+		
+		final PMDAnalysisResult thirdResult = result();
+		final RunningRequest third = this.schedule(() -> {
+			executedAnalyses.incrementAndGet();
+			return thirdResult;
+		});
+		
+		assertNull(second.get());
+		
+		finishFirst.countDown();
+		assertSame(firstResult, first.get());
+		assertSame(thirdResult, third.get());
+		assertEquals(2, executedAnalyses.get());
+	}
+	
+	@Test
+	@DisplayName("A known result is returned without executing the analysis")
+	void cachedResult()
+	{
+		final PMDAnalysisResult cached = result();
+		
+		assertSame(cached, this.scheduler.schedule(
+			this.file,
+			() -> cached,
+			() -> fail("Analysis should not be executed")));
+	}
+	
+	private RunningRequest schedule(final Supplier<PMDAnalysisResult> analysis)
+	{
+		final FutureTask<PMDAnalysisResult> task =
+			new FutureTask<>(() -> this.scheduler.schedule(this.file, () -> null, analysis));
+		return new RunningRequest(task, Thread.ofPlatform().daemon().start(task));
+	}
+	
+	private static PMDAnalysisResult result()
+	{
+		return PMDAnalysisResult.empty(NoAnalysisReason.NO_FILES);
+	}
+	
+	private static void await(final CountDownLatch latch)
+	{
+		try
+		{
+			assertTrue(latch.await(TIMEOUT_S, TimeUnit.SECONDS));
+		}
+		catch(final InterruptedException iex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(iex);
+		}
+	}
+	
+	private static void awaitWaiting(final Thread thread) throws InterruptedException
+	{
+		final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_S);
+		while(thread.getState() != Thread.State.TIMED_WAITING)
+		{
+			assertTrue(System.currentTimeMillis() < deadline, "Request is not waiting");
+			Thread.sleep(1);
+		}
+	}
+	
+	record RunningRequest(
+		FutureTask<PMDAnalysisResult> task,
+		Thread thread)
+	{
+		PMDAnalysisResult get() throws ExecutionException, InterruptedException, TimeoutException
+		{
+			return this.task.get(TIMEOUT_S, TimeUnit.SECONDS);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package software.xdev.pmd.model.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.pmd.lang.rule.Rule;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.lang.rule.RuleSetLoader;
+
+
+class RuleSetDiffTest
+{
+	private static final String RULE_A = "category/java/bestpractices.xml/UnusedLocalVariable";
+	private static final String RULE_B = "category/java/errorprone.xml/EmptyCatchBlock";
+	private static final String CATEGORY = "category/java/bestpractices.xml";
+	
+	@Test
+	@DisplayName("Unchanged rules are reused, changed ones are not")
+	void reuseUnchangedRules()
+	{
+		final RuleSet previous = ruleSet(ruleRef(RULE_A) + ruleRef(RULE_B));
+		final RuleSet loaded = ruleSet(ruleRef(RULE_A) + """
+			<rule ref="%s">
+				<priority>1</priority>
+			</rule>
+			""".formatted(RULE_B));
+		
+		final RuleSet result = RuleSetDiff.reuseUnchangedRules(previous, loaded);
+		
+		assertEquals(List.of("UnusedLocalVariable", "EmptyCatchBlock"), names(result));
+		assertSame(rule(previous, "UnusedLocalVariable"), rule(result, "UnusedLocalVariable"));
+		assertNotSame(rule(previous, "EmptyCatchBlock"), rule(result, "EmptyCatchBlock"));
+		assertSame(rule(loaded, "EmptyCatchBlock"), rule(result, "EmptyCatchBlock"));
+	}
+	
+	@Test
+	@DisplayName("Without a previous ruleset the loaded one is used")
+	void noPrevious()
+	{
+		final RuleSet loaded = ruleSet(ruleRef(RULE_A));
+		
+		assertSame(loaded, RuleSetDiff.reuseUnchangedRules(null, loaded));
+	}
+	
+	@Test
+	@DisplayName("Rules that are already contained in a previous ruleset are removed")
+	void withoutDuplicateRules()
+	{
+		final RuleSet first = ruleSet(ruleRef(RULE_A));
+		final RuleSet second = ruleSet(ruleRef(RULE_A) + ruleRef(RULE_B));
+		final RuleSet onlyDuplicates = ruleSet(ruleRef(RULE_A));
+		
+		final List<RuleSet> result =
+			RuleSetDiff.withoutDuplicateRules(List.of(first, second, onlyDuplicates)).ruleSets();
+		
+		assertEquals(2, result.size());
+		assertSame(first, result.get(0));
+		assertEquals(List.of("EmptyCatchBlock"), names(result.get(1)));
+	}
+	
+	@Test
+	@DisplayName("Rules are kept when the rulesets apply to different files or are configured differently")
+	void differentRulesAreKept()
+	{
+		final RuleSet first = ruleSet(ruleRef(RULE_A) + ruleRef(RULE_B));
+		final RuleSet otherFiles = ruleSet("<exclude-pattern>.*/generated/.*</exclude-pattern>" + ruleRef(RULE_A));
+		final RuleSet otherPriority = ruleSet("""
+			<rule ref="%s">
+				<priority>1</priority>
+			</rule>
+			""".formatted(RULE_B));
+		
+		final List<RuleSet> ruleSets = List.of(first, otherFiles, otherPriority);
+		
+		assertEquals(ruleSets, RuleSetDiff.withoutDuplicateRules(ruleSets).ruleSets());
+	}
+	
+	@Test
+	@DisplayName("A rule referenced by a custom ruleset is a duplicate of the rule of the category ruleset")
+	void referencedCategoryRuleIsDuplicate()
+	{
+		final RuleSet category = new RuleSetLoader().loadFromResource(CATEGORY);
+		final RuleSet custom = ruleSet(ruleRef(RULE_A) + ruleRef(RULE_B));
+		
+		final RuleSetDiff.DeduplicatedRuleSets result = RuleSetDiff.withoutDuplicateRules(List.of(category, custom));
+		
+		assertEquals(2, result.ruleSets().size());
+		assertSame(category, result.ruleSets().get(0));
+		assertEquals(List.of("EmptyCatchBlock"), names(result.ruleSets().get(1)));
+		assertEquals(
+			List.of(CATEGORY, "test.xml"),
+			result.origins().get(rule(category, "UnusedLocalVariable")));
+	}
+	
+	@Test
+	@DisplayName("A referenced category rule with overridden properties is not a duplicate")
+	void overriddenCategoryRuleIsKept()
+	{
+		final RuleSet category = new RuleSetLoader().loadFromResource(CATEGORY);
+		final RuleSet custom = ruleSet("""
+			<rule ref="%s">
+				<priority>1</priority>
+			</rule>
+			""".formatted(RULE_A));
+		
+		final RuleSetDiff.DeduplicatedRuleSets result = RuleSetDiff.withoutDuplicateRules(List.of(category, custom));
+		
+		assertEquals(List.of(category, custom), result.ruleSets());
+		assertTrue(result.origins().isEmpty());
+	}
+	
+	private static List<String> names(final RuleSet ruleSet)
+	{
+		return ruleSet.getRules().stream().map(Rule::getName).toList();
+	}
+	
+	private static Rule rule(final RuleSet ruleSet, final String name)
+	{
+		return ruleSet.getRuleByName(name);
+	}
+	
+	private static String ruleRef(final String ruleReference)
+	{
+		return "<rule ref=\"" + ruleReference + "\"/>";
+	}
+	
+	private static RuleSet ruleSet(final String content)
+	{
+		return new RuleSetLoader().loadFromString(
+			"test.xml",
+			"""
+				<?xml version="1.0"?>
+				<ruleset name="test"
+					xmlns="http://pmd.sourceforge.net/ruleset/2.0.0"
+					xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+					xsi:schemaLocation="http://pmd.sourceforge.net/ruleset/2.0.0 \
+				https://pmd.sourceforge.io/ruleset_2_0_0.xsd">
+					<description>test</description>
+					%s
+				</ruleset>
+				""".formatted(content));
+	}
+}